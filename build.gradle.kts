@@ -1,5 +1,6 @@
 plugins {
     id("org.openrewrite.build.recipe-library") version "latest.release"
+    id("me.champeau.jmh") version "0.7.3"
 }
 // Set as appropriate for your organization
 group = "org.openrewrite.recipe"
@@ -42,4 +43,55 @@ dependencies {
 
     testImplementation("org.openrewrite:rewrite-test")
     testRuntimeOnly("org.openrewrite:rewrite-java-21")
+
+    jmh(platform("org.openrewrite:rewrite-bom:$latest"))
+    jmh("org.openrewrite:rewrite-java-21")
+}
+
+jmh {
+    fork.set(1)
+    warmupIterations.set(2)
+    iterations.set(5)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    // JSON results are compared with the baseline in src/jmh by jmhCompare
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+}
+
+val jmhResultsFile = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+val jmhBaselineFile = layout.projectDirectory.file("src/jmh/baseline.json").asFile
+
+tasks.register("jmhSaveBaseline") {
+    group = "benchmark"
+    description = "Records the results of the last jmh run as the baseline that jmhCompare compares with."
+    mustRunAfter("jmh")
+    doLast {
+        jmhResultsFile.copyTo(jmhBaselineFile, overwrite = true)
+    }
+}
+
+tasks.register("jmhCompare") {
+    group = "benchmark"
+    description = "Compares the results of the last jmh run with the baseline."
+    mustRunAfter("jmh")
+    doLast {
+        @Suppress("UNCHECKED_CAST")
+        fun scores(file: File): Map<String, Pair<Double, String>> =
+            (groovy.json.JsonSlurper().parse(file) as List<Map<String, Any?>>).associate { result ->
+                val metric = result["primaryMetric"] as Map<String, Any?>
+                val params = result["params"]?.let { " $it" } ?: ""
+                "${result["benchmark"]}$params" to ((metric["score"] as Number).toDouble() to metric["scoreUnit"] as String)
+            }
+
+        val baseline = scores(jmhBaselineFile)
+        for ((benchmark, score) in scores(jmhResultsFile)) {
+            val before = baseline[benchmark]
+            if (before == null) {
+                println("%s: %.3f %s (no baseline)".format(benchmark, score.first, score.second))
+            } else {
+                println("%s: %.3f -> %.3f %s (%+.1f%%)".format(benchmark, before.first, score.first, score.second,
+                    100 * (score.first - before.first) / before.first))
+            }
+        }
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.benchmarks;
+
+import org.openrewrite.FindCallGraph;
+import org.openrewrite.InMemoryExecutionContext;
+import org.openrewrite.RecipeRun;
+import org.openrewrite.SourceFile;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.table.CallGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Throughput of {@link FindCallGraph} over generated Java compilation units. Each source file
+ * declares a class whose methods call each other, call into the previously generated class, call
+ * the standard library, and optionally call methods that don't exist (missing type attribution)
+ * from inside nested anonymous classes.
+ * <p>
+ * Files and edges are reported as auxiliary counters, so the results include files/sec and
+ * edges/sec alongside the allocation rate from the GC profiler.
+ */
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class FindCallGraphBenchmark {
+
+    @Param({"100"})
+    int files;
+
+    @Param({"10", "50"})
+    int methodsPerFile;
+
+    @Param({"1", "4"})
+    int nestingDepth;
+
+    @Param({"0", "50"})
+    int anonymousClassPercent;
+
+    @Param({"0", "10"})
+    int missingTypePercent;
+
+    List<SourceFile> sourceFiles;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Volume {
+        public long files;
+        public long edges;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        String[] sources = new String[files];
+        for (int i = 0; i < files; i++) {
+            sources[i] = compilationUnit(i, random);
+        }
+        sourceFiles = JavaParser.fromJavaVersion().build()
+                .parse(new InMemoryExecutionContext(), sources)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public RecipeRun findCallGraph(Volume volume) {
+        RecipeRun run = new FindCallGraph(false, null, null, null, null, null)
+                .run(new InMemoryLargeSourceSet(sourceFiles), new InMemoryExecutionContext());
+        volume.files += sourceFiles.size();
+        volume.edges += run.getDataTableRows(CallGraph.class).size();
+        return run;
+    }
+
+    private String compilationUnit(int index, Random random) {
+        StringBuilder source = new StringBuilder()
+                .append("package bench;\n")
+                .append("import java.util.ArrayList;\n")
+                .append("import java.util.List;\n")
+                .append("public class C").append(index).append(" {\n");
+        for (int m = 0; m < methodsPerFile; m++) {
+            source.append("    public List<String> m").append(m).append("(String s) {\n");
+            StringBuilder body = new StringBuilder()
+                    .append("List<String> l = new ArrayList<>();\n")
+                    .append("l.add(s.trim());\n")
+                    .append("m").append((m + 1) % methodsPerFile).append("(s);\n");
+            if (index > 0) {
+                body.append("new C").append(index - 1).append("().m").append(m).append("(s);\n");
+            }
+            if (random.nextInt(100) < missingTypePercent) {
+                body.append("missing").append(m).append("(s);\n");
+            }
+            if (random.nextInt(100) < anonymousClassPercent) {
+                for (int d = 0; d < nestingDepth; d++) {
+                    body.insert(0, "new Runnable() {\npublic void run() {\n").append("}\n}.run();\n");
+                }
+            }
+            source.append(body).append("return null;\n    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+}
@@ -16,9 +16,16 @@
 package org.openrewrite;
 
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import org.jspecify.annotations.Nullable;
+import org.openrewrite.callgraph.CallGraphCache;
+import org.openrewrite.callgraph.CallGraphFileWriter;
+import org.openrewrite.callgraph.CallGraphSink;
+import org.openrewrite.callgraph.SourceFileRows;
 import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.marker.JavaSourceSet;
 import org.openrewrite.java.tree.J;
 import org.openrewrite.java.tree.JavaType;
 import org.openrewrite.java.tree.NameTree;
@@ -27,22 +34,48 @@ import org.openrewrite.java.tree.TypeUtils;
 import org.openrewrite.marker.Markup;
 import org.openrewrite.marker.SourceSet;
 import org.openrewrite.table.CallGraph;
+import org.openrewrite.table.CallGraphFileMetrics;
+import org.openrewrite.table.CallGraphNodes;
+import org.openrewrite.table.CallSiteCounts;
+import org.openrewrite.table.ClassCallGraph;
 import org.openrewrite.table.FactoryEdges;
 import org.openrewrite.table.LowConfidenceFiles;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 @EqualsAndHashCode(callSuper = false)
 @Value
 public class FindCallGraph extends Recipe {
+    private static final String SIGNATURES = "org.openrewrite.FindCallGraph.SIGNATURES";
+    private static final String NODES = "org.openrewrite.FindCallGraph.NODES";
+    private static final String ASSIGNABILITY = "org.openrewrite.FindCallGraph.ASSIGNABILITY";
+    private static final String CALL_GRAPH_FILE = "org.openrewrite.FindCallGraph.CALL_GRAPH_FILE";
+    private static final String CLASSPATH_FINGERPRINTS = "org.openrewrite.FindCallGraph.CLASSPATH_FINGERPRINTS";
+
     transient CallGraph callGraph = new CallGraph(this);
+    transient CallGraphNodes callGraphNodes = new CallGraphNodes(this);
+    transient CallGraphFileMetrics fileMetrics = new CallGraphFileMetrics(this);
     transient FactoryEdges factoryEdges = new FactoryEdges(this);
     transient LowConfidenceFiles lowConfidenceFiles = new LowConfidenceFiles(this);
+    transient CallSiteCounts callSiteCounts = new CallSiteCounts(this);
+    transient ClassCallGraph classCallGraph = new ClassCallGraph(this);
 
     String displayName = "Find call graph";
 
@@ -55,38 +88,311 @@ public class FindCallGraph extends Recipe {
             required = false)
     boolean includeStdLib;
 
+    @Option(displayName = "Cache directory",
+            description = "A local directory in which the rows produced for each source file are kept between runs, " +
+                          "keyed by the file's path, the checksum recorded when it was parsed, and its source set's " +
+                          "classpath. Files that are unchanged since a previous run replay their cached rows instead " +
+                          "of being visited again. Source files without a checksum are never cached, so parsers that " +
+                          "don't record one should have one recorded at parse time with `SourceChecksum.mark`. A " +
+                          "change to another source file of the same source set, such as a changed method signature, " +
+                          "is not detected, so the cache should be cleared when a source set is changed as a whole. " +
+                          "By default nothing is cached.",
+            required = false,
+            example = "/tmp/call-graph-cache")
+    @Nullable
+    String cacheDirectory;
+
+    @Option(displayName = "Count call sites",
+            description = "When enabled, the number of call sites behind each method call edge is reported in a " +
+                          "separate data table. Call edges are otherwise reported once per calling scope, no matter " +
+                          "how many times the scope makes the call.",
+            required = false)
+    @Nullable
+    Boolean countCallSites;
+
+    @Option(displayName = "Granularity",
+            description = "Whether edges are reported between methods in the `Method call graph` table, or only " +
+                          "between the classes that declare them in the `Class call graph` table. Class granularity " +
+                          "skips rendering method signatures and is much smaller. Call sites are only counted at " +
+                          "method granularity. Defaults to `method`.",
+            valid = {"method", "class"},
+            example = "class",
+            required = false)
+    @Nullable
+    String granularity;
+
+    @Option(displayName = "Collect file metrics",
+            description = "When enabled, the time spent and the volume of edges produced for each source file are " +
+                          "reported in a separate data table.",
+            required = false)
+    @Nullable
+    Boolean collectFileMetrics;
+
+    @Option(displayName = "Call graph file",
+            description = "A file to write the method call graph to once the run is complete, in a compact binary " +
+                          "format that can be memory-mapped and queried with `CallGraphFile`. The call graph is also " +
+                          "reported in the data table or to a registered sink as usual.",
+            required = false,
+            example = "build/call-graph.bin")
+    @Nullable
+    String csrFile;
+
+    /**
+     * Each visitor keeps the state of the file it is currently visiting, so source files may be
+     * visited concurrently as long as every thread uses a visitor of its own. State shared across
+     * files in the {@link ExecutionContext} is thread-safe, and each file's rows are buffered and
+     * inserted into the data tables together once the file has been visited. When a
+     * {@link CallGraphSink} is registered on the context, call graph rows are handed to it
+     * instead of the {@link CallGraph} data table.
+     * <p>
+     * The visitor is thread-safe, but the recipe does not visit files in parallel itself: a recipe
+     * run visits one file at a time, and it is up to a caller with a thread pool of its own to
+     * hand files to visitors on several threads.
+     */
     @Override
     public TreeVisitor<?, ExecutionContext> getVisitor() {
         return new JavaIsoVisitor<ExecutionContext>() {
+            /**
+             * The method, class, and source file declarations enclosing the cursor, innermost first.
+             * Maintained on the way down so that finding the scope an edge is attributed to does not
+             * require walking the cursor.
+             */
+            private final Deque<Scope> scopes = new ArrayDeque<>();
+
+            /**
+             * Signatures this visitor has already looked up, in front of the run-wide cache that is
+             * shared (and therefore synchronized) across visitors.
+             */
+            private final Map<JavaType.Method, Signature> signatures = new IdentityHashMap<>();
+
+            private final Map<String, Long> classIds = new HashMap<>();
+
+            private final @Nullable CallGraphCache cache = cacheDirectory == null ?
+                    null : new CallGraphCache(Paths.get(cacheDirectory));
+
+            private final boolean classGranularity = "class".equals(granularity);
+
+            private final boolean metrics = Boolean.TRUE.equals(collectFileMetrics);
+
+            /**
+             * The number of static initializer blocks and static field declarations enclosing the cursor.
+             */
+            private int staticInitializers;
+
+            @Override
+            public @Nullable J visit(@Nullable Tree tree, ExecutionContext ctx) {
+                if (!(tree instanceof SourceFile)) {
+                    if (metrics && tree != null) {
+                        Scope scope = scopes.peek();
+                        if (scope != null) {
+                            scope.file.nodesVisited++;
+                        }
+                    }
+                    return super.visit(tree, ctx);
+                }
+                SourceFile sourceFile = (SourceFile) tree;
+                String sourceSet = sourceFile.getMarkers().findFirst(SourceSet.class).map(SourceSet::getName).orElse("unknown");
+                String sourcePath = sourceFile.getSourcePath().toString();
+
+                String cacheKey = sourceSet + ":" + sourcePath + "?includeStdLib=" + includeStdLib +
+                                  "&countCallSites=" + countCallSites + "&granularity=" + granularity;
+                String fingerprint = null;
+                if (cache != null && sourceFile.getChecksum() != null) {
+                    try {
+                        fingerprint = CallGraphCache.fingerprint(sourceFile.getChecksum(),
+                                classpathFingerprint(sourceFile, ctx));
+                        SourceFileRows cached = cache.read(cacheKey, fingerprint);
+                        if (cached != null) {
+                            insertRows(cached, ctx);
+                            return (J) tree;
+                        }
+                    } catch (IOException e) {
+                        ctx.getOnError().accept(e);
+                    }
+                }
+
+                // Rows are buffered for the whole file so that they can be cached together
+                FileContext file = new FileContext(sourceSet, sourcePath);
+                scopes.push(new Scope(sourceFile, file, null));
+                long start = metrics ? System.nanoTime() : 0;
+                J visited;
+                try {
+                    file.nodesVisited++;
+                    visited = super.visit(tree, ctx);
+                } finally {
+                    exitScope();
+                    insertRows(file.rows, ctx);
+                    if (metrics) {
+                        insertMetrics(file, System.nanoTime() - start, ctx);
+                    }
+                }
+
+                // A file whose visit added markers can't be replayed from rows alone
+                if (cache != null && fingerprint != null && visited == tree) {
+                    try {
+                        cache.write(cacheKey, fingerprint, file.rows);
+                    } catch (IOException e) {
+                        ctx.getOnError().accept(e);
+                    }
+                }
+                return visited;
+            }
+
+            private List<CallGraphNodes.Row> nodes(CallGraph.Row row) {
+                return Arrays.asList(
+                        new CallGraphNodes.Row(row.getFromId(), row.getFromClass(), row.getFromName(),
+                                row.getFromArguments(), row.getFromType()),
+                        new CallGraphNodes.Row(row.getToId(), row.getToClass(), row.getToName(),
+                                row.getToArguments(), row.getToType()));
+            }
+
+            /**
+             * State shared by the visitors of a run, kept in the context. Looking up a message and
+             * adding it when absent is not atomic, so it is done under the lock that serializes
+             * insertions into the data tables, which is owned by the recipe rather than the context
+             * that belongs to the caller.
+             */
+            private <T> T shared(String key, ExecutionContext ctx, Function<String, T> create) {
+                synchronized (callGraph) {
+                    return ctx.computeMessageIfAbsent(key, create);
+                }
+            }
+
+            /**
+             * The source files of a source set share its marker, so its classpath is fingerprinted once
+             * per run by the identity of the marker.
+             */
+            private @Nullable String classpathFingerprint(SourceFile sourceFile, ExecutionContext ctx) {
+                JavaSourceSet sourceSet = sourceFile.getMarkers().findFirst(JavaSourceSet.class).orElse(null);
+                if (sourceSet == null) {
+                    return null;
+                }
+                Map<JavaSourceSet, String> fingerprints = shared(CLASSPATH_FINGERPRINTS, ctx,
+                        k -> Collections.synchronizedMap(new IdentityHashMap<>()));
+                return fingerprints.computeIfAbsent(sourceSet, CallGraphCache::classpathFingerprint);
+            }
+
+            private void insertMetrics(FileContext file, long visitNanos, ExecutionContext ctx) {
+                int callEdges = 0;
+                int referenceEdges = 0;
+                for (CallGraph.Row row : file.rows.getCallGraph()) {
+                    if (row.getAction() == CallGraph.ResourceAction.CALL) {
+                        callEdges++;
+                    } else if (row.getAction() == CallGraph.ResourceAction.REFERENCE) {
+                        referenceEdges++;
+                    }
+                }
+                for (ClassCallGraph.Row row : file.rows.getClassCallGraph()) {
+                    if (row.getAction() == CallGraph.ResourceAction.CALL) {
+                        callEdges++;
+                    } else if (row.getAction() == CallGraph.ResourceAction.REFERENCE) {
+                        referenceEdges++;
+                    }
+                }
+                CallGraphFileMetrics.Row row = new CallGraphFileMetrics.Row(String.valueOf(file.sourcePath), visitNanos,
+                        file.nodesVisited, callEdges, referenceEdges, file.stdLibEdgesDropped, file.lowConfidenceHits);
+                synchronized (callGraph) {
+                    fileMetrics.insertRow(ctx, row);
+                }
+            }
+
+            private void insertRows(SourceFileRows rows, ExecutionContext ctx) {
+                // Files visited concurrently merge their rows into the data tables one file at a time
+                synchronized (callGraph) {
+                    if (csrFile != null) {
+                        // The writer keeps each edge as a pair of node ids, not the row
+                        shared(CALL_GRAPH_FILE, ctx, k -> new CallGraphFileWriter())
+                                .addAll(rows.getCallGraph());
+                    }
+                    CallGraphSink sink = CallGraphSink.find(ctx);
+                    if (sink == null) {
+                        Set<Long> nodes = shared(NODES, ctx, k -> new HashSet<>());
+                        for (CallGraph.Row row : rows.getCallGraph()) {
+                            for (CallGraphNodes.Row node : nodes(row)) {
+                                if (nodes.add(node.getId())) {
+                                    callGraphNodes.insertRow(ctx, node);
+                                }
+                            }
+                            callGraph.insertRow(ctx, row);
+                        }
+                    } else {
+                        try {
+                            // Nodes are only deduplicated within the file, so that nothing is retained
+                            // across files while rows are streamed
+                            Set<Long> nodes = new HashSet<>();
+                            for (CallGraph.Row row : rows.getCallGraph()) {
+                                for (CallGraphNodes.Row node : nodes(row)) {
+                                    if (nodes.add(node.getId())) {
+                                        sink.acceptNode(node);
+                                    }
+                                }
+                                sink.accept(row);
+                            }
+                            sink.endSourceFile();
+                        } catch (IOException e) {
+                            ctx.getOnError().accept(e);
+                        }
+                    }
+                    for (FactoryEdges.Row row : rows.getFactoryEdges()) {
+                        factoryEdges.insertRow(ctx, row);
+                    }
+                    for (LowConfidenceFiles.Row row : rows.getLowConfidenceFiles()) {
+                        lowConfidenceFiles.insertRow(ctx, row);
+                    }
+                    for (CallSiteCounts.Row row : rows.getCallSiteCounts()) {
+                        callSiteCounts.insertRow(ctx, row);
+                    }
+                    for (ClassCallGraph.Row row : rows.getClassCallGraph()) {
+                        classCallGraph.insertRow(ctx, row);
+                    }
+                }
+            }
 
             @Override
             public J.ClassDeclaration visitClassDeclaration(J.ClassDeclaration classDecl, ExecutionContext ctx) {
                 if (classDecl.getType() == null) {
-                    recordLowConfidence(ctx, "class.type");
+                    recordLowConfidence(LowConfidenceReason.CLASS_TYPE);
                     return Markup.warn(classDecl, new IllegalStateException("Class declaration is missing type attribution"));
                 }
-                return super.visitClassDeclaration(classDecl, ctx);
+                enterScope(classDecl, null);
+                try {
+                    return super.visitClassDeclaration(classDecl, ctx);
+                } finally {
+                    exitScope();
+                }
+            }
+
+            @Override
+            public J.Block visitBlock(J.Block block, ExecutionContext ctx) {
+                if (!block.isStatic()) {
+                    return super.visitBlock(block, ctx);
+                }
+                staticInitializers++;
+                try {
+                    return super.visitBlock(block, ctx);
+                } finally {
+                    staticInitializers--;
+                }
             }
 
             /**
              * Mark the current source file as having an incomplete call graph. Deduped per
-             * (sourcePath, reason) within a single recipe run via an ExecutionContext bag,
-             * so a heavily-attributed file emits a few rows rather than thousands. Downstream
+             * (sourcePath, reason) with a bit per reason on the file being visited, so a
+             * heavily-attributed file emits a few rows rather than thousands. Downstream
              * test selection treats any row for a file as "method-level reachability for this
              * file is unreliable -- escalate to module-coarse selection for any test module
              * that depends on this file's module."
              */
-            private void recordLowConfidence(ExecutionContext ctx, String reason) {
-                SourceFile sf = getCursor().firstEnclosing(SourceFile.class);
-                if (sf == null) {
+            private void recordLowConfidence(LowConfidenceReason reason) {
+                Scope scope = scopes.peek();
+                if (scope == null || scope.file.sourcePath == null) {
                     return;
                 }
-                String sourcePath = sf.getSourcePath().toString();
-                String dedupeKey = sourcePath + "::" + reason;
-                Set<String> recorded = ctx.computeMessageIfAbsent(
-                        "LOW_CONFIDENCE_RECORDED", k -> new HashSet<>());
-                if (recorded.add(dedupeKey)) {
-                    lowConfidenceFiles.insertRow(ctx, new LowConfidenceFiles.Row(sourcePath, reason));
+                scope.file.lowConfidenceHits++;
+                int bit = 1 << reason.ordinal();
+                if ((scope.file.lowConfidenceReasons & bit) == 0) {
+                    scope.file.lowConfidenceReasons |= bit;
+                    scope.file.rows.getLowConfidenceFiles().add(new LowConfidenceFiles.Row(scope.file.sourcePath, reason.getLabel()));
                 }
             }
 
@@ -106,6 +412,10 @@ public class FindCallGraph extends Recipe {
              * signals without having to replicate the type-hierarchy lookup.
              */
             private void maybeRecordFactoryEdge(J.NewClass newClass, ExecutionContext ctx) {
+                Scope scope = scopes.peek();
+                if (scope == null) {
+                    return;
+                }
                 JavaType.Method constructor = newClass.getMethodType();
                 if (constructor == null) {
                     return;
@@ -126,24 +436,41 @@ public class FindCallGraph extends Recipe {
                 if (enclosingReturn == null) {
                     return;
                 }
-                if (!TypeUtils.isAssignableTo(enclosingReturn.getFullyQualifiedName(), constructed)) {
-                    return;
-                }
                 String constructedFqn = constructed.getFullyQualifiedName();
                 if (!includeStdLib && isStdLib(constructedFqn)) {
                     return;
                 }
+                if (!isAssignableTo(enclosingReturn.getFullyQualifiedName(), constructed, ctx)) {
+                    return;
+                }
                 JavaType.FullyQualified enclosingDeclaring = enclosingType.getDeclaringType();
                 if (enclosingDeclaring == null) {
-                    recordLowConfidence(ctx, "factory.enclosingMethod.declaringType");
+                    recordLowConfidence(LowConfidenceReason.FACTORY_ENCLOSING_METHOD_DECLARING_TYPE);
                     return;
                 }
-                factoryEdges.insertRow(ctx, new FactoryEdges.Row(
+                scope.file.rows.getFactoryEdges().add(new FactoryEdges.Row(
                         enclosingDeclaring.getFullyQualifiedName(),
                         enclosingType.getName(),
                         constructedFqn));
             }
 
+            /**
+             * {@link TypeUtils#isAssignableTo(String, JavaType)}, remembered for the rest of the run by
+             * the pair of fully qualified names. The same factory return types and constructed types
+             * recur across many files, and each uncached check walks the constructed type's supertypes.
+             */
+            private boolean isAssignableTo(String to, JavaType.FullyQualified from, ExecutionContext ctx) {
+                Map<String, Map<String, Boolean>> assignability = shared(ASSIGNABILITY, ctx,
+                        k -> new ConcurrentHashMap<>());
+                Map<String, Boolean> assignableTo = assignability.computeIfAbsent(to, k -> new ConcurrentHashMap<>());
+                Boolean assignable = assignableTo.get(from.getFullyQualifiedName());
+                if (assignable == null) {
+                    assignable = TypeUtils.isAssignableTo(to, from);
+                    assignableTo.put(from.getFullyQualifiedName(), assignable);
+                }
+                return assignable;
+            }
+
             @Override
             public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method, ExecutionContext ctx) {
                 return super.visitMethodInvocation(recordCall(method, ctx), ctx);
@@ -163,31 +490,47 @@ public class FindCallGraph extends Recipe {
             @Override
             public J.VariableDeclarations visitVariableDeclarations(J.VariableDeclarations multiVariable, ExecutionContext ctx) {
                 recordTypeTree(multiVariable.getTypeExpression(), ctx);
-                return super.visitVariableDeclarations(multiVariable, ctx);
+                if (!multiVariable.hasModifier(J.Modifier.Type.Static)) {
+                    return super.visitVariableDeclarations(multiVariable, ctx);
+                }
+                staticInitializers++;
+                try {
+                    return super.visitVariableDeclarations(multiVariable, ctx);
+                } finally {
+                    staticInitializers--;
+                }
             }
 
             @Override
             public J.MethodDeclaration visitMethodDeclaration(J.MethodDeclaration method, ExecutionContext ctx) {
-                // The call is dispatched BEFORE super visits children, so the current cursor is
-                // still the enclosing scope for the method -- but we want the reference edge
-                // attributed to the method itself. Delegate to super first so traversal walks
-                // into child TypeTrees with the method on the cursor, then super's walk of the
-                // body + return expression will naturally record the appropriate references
+                // The method becomes the innermost scope before anything is recorded, so the
+                // return and thrown type references below are attributed to the method itself.
+                // Super's walk of the parameters and body then records the remaining references
                 // through visitVariableDeclarations (parameters) and the TypeTree visitors.
-                // The return-type expression is a TypeTree-typed field of the method, so we
-                // walk into it with the method on the cursor stack.
-                if (method.getReturnTypeExpression() != null) {
-                    recordTypeReferenceInScope(method.getReturnTypeExpression().getType(),
-                            getCursor(), ctx);
-                }
-                if (method.getThrows() != null) {
-                    for (NameTree thrown : method.getThrows()) {
-                        if (thrown instanceof TypeTree) {
-                            recordTypeReferenceInScope(thrown.getType(), getCursor(), ctx);
+                JavaType.Method methodType = method.getMethodType();
+                Signature signature = null;
+                if (methodType != null && methodType.getDeclaringType() != null) {
+                    // Edges at class granularity only need to know the declaring class
+                    signature = classGranularity ?
+                            new Signature(declaringFqn(methodType), methodType.getName(), "", resourceType(methodType), "", 0) :
+                            signature(methodType, ctx);
+                }
+                enterScope(method, signature);
+                try {
+                    if (method.getReturnTypeExpression() != null) {
+                        recordTypeReference(method.getReturnTypeExpression().getType(), ctx);
+                    }
+                    if (method.getThrows() != null) {
+                        for (NameTree thrown : method.getThrows()) {
+                            if (thrown instanceof TypeTree) {
+                                recordTypeReference(thrown.getType(), ctx);
+                            }
                         }
                     }
+                    return super.visitMethodDeclaration(method, ctx);
+                } finally {
+                    exitScope();
                 }
-                return super.visitMethodDeclaration(method, ctx);
             }
 
             @Override
@@ -222,6 +565,43 @@ public class FindCallGraph extends Recipe {
                 return super.visitFieldAccess(fieldAccess, ctx);
             }
 
+            /**
+             * Make a class or method declaration the innermost scope. The source set and path of
+             * the enclosing file are carried over so that they are resolved once per file, and a
+             * method's own signature is resolved once per declaration rather than once per edge.
+             */
+            private void enterScope(J declaration, @Nullable Signature signature) {
+                Scope enclosing = scopes.peek();
+                scopes.push(enclosing == null ?
+                        new Scope(declaration, new FileContext("unknown", null), signature) :
+                        new Scope(declaration, enclosing.file, signature));
+            }
+
+            /**
+             * Leave the innermost scope, reporting how many call sites are behind each of the call
+             * edges recorded from it when call sites are being counted.
+             */
+            private void exitScope() {
+                Scope scope = scopes.pop();
+                if (!Boolean.TRUE.equals(countCallSites)) {
+                    return;
+                }
+                for (Map<JavaType.Method, CallSites> calls : Arrays.asList(scope.calls, scope.staticInitializerCalls)) {
+                    for (CallSites sites : calls.values()) {
+                        CallGraph.Row edge = sites.edge;
+                        scope.file.rows.getCallSiteCounts().add(new CallSiteCounts.Row(
+                                edge.getFromSourceSet(),
+                                edge.getFromClass(),
+                                edge.getFromName(),
+                                edge.getFromArguments(),
+                                edge.getToClass(),
+                                edge.getToName(),
+                                edge.getToArguments(),
+                                sites.count));
+                    }
+                }
+            }
+
             private void recordTypeTree(@Nullable TypeTree typeTree, ExecutionContext ctx) {
                 if (typeTree == null) {
                     return;
@@ -231,91 +611,85 @@ public class FindCallGraph extends Recipe {
 
             /**
              * Record a type-reference edge attributed to whatever method / class /
-             * compilation unit scope encloses the current cursor. Walks up from the
-             * parent of the current cursor.
+             * compilation unit scope innermost encloses the current cursor.
              */
             private void recordTypeReference(@Nullable JavaType type, ExecutionContext ctx) {
-                Cursor scope = getCursor().dropParentUntil(it -> it instanceof J.MethodDeclaration ||
-                        it instanceof J.ClassDeclaration || it instanceof SourceFile);
-                recordTypeReferenceInScope(type, scope, ctx);
-            }
-
-            /**
-             * Like {@link #recordTypeReference(JavaType, ExecutionContext)} but with an
-             * explicit scope cursor. Used when the caller is a visit method for the scope
-             * node itself (e.g. {@code visitMethodDeclaration} recording its return type)
-             * -- in that case {@code getCursor()} is the scope, not an ancestor.
-             */
-            private void recordTypeReferenceInScope(@Nullable JavaType type, Cursor scope, ExecutionContext ctx) {
+                Scope scope = scopes.peek();
+                if (scope == null) {
+                    return;
+                }
                 JavaType.FullyQualified fq = extractFullyQualified(type);
                 if (fq == null) {
                     return;
                 }
                 String fqn = fq.getFullyQualifiedName();
                 if (!includeStdLib && isStdLib(fqn)) {
+                    scope.file.stdLibEdgesDropped++;
                     return;
                 }
-                String sourceSet = Optional.ofNullable(scope.firstEnclosing(SourceFile.class))
-                        .map(Tree::getMarkers)
-                        .flatMap(m -> m.findFirst(SourceSet.class))
-                        .map(SourceSet::getName)
-                        .orElse("unknown");
-
-                if (scope.getValue() instanceof J.MethodDeclaration) {
-                    JavaType.Method fromMethod = ((J.MethodDeclaration) scope.getValue()).getMethodType();
-                    if (fromMethod == null) {
-                        recordLowConfidence(ctx, "reference.enclosingMethod.type");
+                if (scope.tree instanceof J.MethodDeclaration) {
+                    Signature from = scope.signature;
+                    if (from == null) {
+                        recordLowConfidence(((J.MethodDeclaration) scope.tree).getMethodType() == null ?
+                                LowConfidenceReason.REFERENCE_ENCLOSING_METHOD_TYPE :
+                                LowConfidenceReason.REFERENCE_ENCLOSING_METHOD_DECLARING_TYPE);
                         return;
                     }
-                    JavaType.FullyQualified fromMethodDeclaring = fromMethod.getDeclaringType();
-                    if (fromMethodDeclaring == null) {
-                        recordLowConfidence(ctx, "reference.enclosingMethod.declaringType");
+                    if (!scope.typeReferences.add(fqn)) {
                         return;
                     }
-                    if (!recordedReferences(scope).add(fqn)) {
+                    if (classGranularity) {
+                        recordClassEdge(scope, from.getDeclaringFqn(), CallGraph.ResourceAction.REFERENCE, fqn);
                         return;
                     }
-                    callGraph.insertRow(ctx, referenceRow(sourceSet,
-                            fromMethodDeclaring.getFullyQualifiedName(),
-                            fromMethod.getName(),
-                            parameters(fromMethod),
-                            resourceType(fromMethod),
+                    scope.file.rows.getCallGraph().add(referenceRow(scope.file.sourceSet,
+                            from.getDeclaringFqn(),
+                            from.getName(),
+                            from.getParameters(),
+                            from.getResourceType(),
+                            from.getId(),
                             fqn));
-                } else if (scope.getValue() instanceof J.ClassDeclaration) {
-                    JavaType.FullyQualified fromType = ((J.ClassDeclaration) scope.getValue()).getType();
+                } else if (scope.tree instanceof J.ClassDeclaration) {
+                    JavaType.FullyQualified fromType = ((J.ClassDeclaration) scope.tree).getType();
                     if (fromType == null) {
-                        recordLowConfidence(ctx, "reference.enclosingClass.type");
+                        recordLowConfidence(LowConfidenceReason.REFERENCE_ENCLOSING_CLASS_TYPE);
+                        return;
+                    }
+                    if (!scope.typeReferences.add(fqn)) {
                         return;
                     }
-                    if (!recordedReferences(scope).add(fqn)) {
+                    if (classGranularity) {
+                        recordClassEdge(scope, fromType.getFullyQualifiedName(), CallGraph.ResourceAction.REFERENCE, fqn);
                         return;
                     }
-                    callGraph.insertRow(ctx, referenceRow(sourceSet,
+                    scope.file.rows.getCallGraph().add(referenceRow(scope.file.sourceSet,
                             fromType.getFullyQualifiedName(),
                             "",
                             "",
                             CallGraph.ResourceType.CLASS,
+                            classId(fromType.getFullyQualifiedName()),
                             fqn));
-                } else if (scope.getValue() instanceof SourceFile) {
-                    if (!recordedReferences(scope).add(fqn)) {
+                } else if (scope.tree instanceof SourceFile) {
+                    if (!scope.typeReferences.add(fqn)) {
                         return;
                     }
-                    callGraph.insertRow(ctx, referenceRow(sourceSet,
-                            ((SourceFile) scope.getValue()).getSourcePath().toString(),
+                    if (classGranularity) {
+                        recordClassEdge(scope, scope.file.sourcePath, CallGraph.ResourceAction.REFERENCE, fqn);
+                        return;
+                    }
+                    scope.file.rows.getCallGraph().add(referenceRow(scope.file.sourceSet,
+                            scope.file.sourcePath,
                             "",
                             "",
                             CallGraph.ResourceType.CLASS,
+                            classId(scope.file.sourcePath),
                             fqn));
                 }
             }
 
-            @SuppressWarnings("unchecked")
-            private Set<String> recordedReferences(Cursor scope) {
-                return scope.computeMessageIfAbsent("TYPE_REFERENCES_IN_SCOPE", k -> new HashSet<String>());
-            }
-
             private CallGraph.Row referenceRow(String sourceSet, String fromClass, String fromName,
-                                               String fromArgs, CallGraph.ResourceType fromType, String toClass) {
+                                               String fromArgs, CallGraph.ResourceType fromType, long fromId,
+                                               String toClass) {
                 return new CallGraph.Row(
                         sourceSet,
                         fromClass,
@@ -327,10 +701,42 @@ public class FindCallGraph extends Recipe {
                         "",
                         "",
                         CallGraph.ResourceType.CLASS,
-                        ""
+                        "",
+                        fromId,
+                        classId(toClass)
                 );
             }
 
+            /**
+             * The {@link CallGraph#nodeId} of a class, or of a source file standing in for one, which is
+             * the node of every type reference to it.
+             */
+            private long classId(String className) {
+                Long id = classIds.get(className);
+                if (id == null) {
+                    id = CallGraph.nodeId(className, "", "");
+                    classIds.put(className, id);
+                }
+                return id;
+            }
+
+            /**
+             * The {@link CallGraph#nodeId} of the instance or static initializer of a class, or of a
+             * source file standing in for one, remembered on the scope the edges are recorded from.
+             */
+            private long initializerId(Scope scope, String className, boolean isStatic) {
+                if (isStatic) {
+                    if (scope.staticInitializerId == null) {
+                        scope.staticInitializerId = CallGraph.nodeId(className, "<clinit>", "");
+                    }
+                    return scope.staticInitializerId;
+                }
+                if (scope.initializerId == null) {
+                    scope.initializerId = CallGraph.nodeId(className, "<init>", "");
+                }
+                return scope.initializerId;
+            }
+
             private boolean isStdLib(String fqn) {
                 return fqn.startsWith("java.") || fqn.startsWith("groovy.") || fqn.startsWith("kotlin.");
             }
@@ -345,112 +751,163 @@ public class FindCallGraph extends Recipe {
                     method = ((J.MemberReference) j).getMethodType();
                 }
                 if (method == null) {
-                    recordLowConfidence(ctx, "call.methodType");
+                    recordLowConfidence(LowConfidenceReason.CALL_METHOD_TYPE);
                     return Markup.warn(j, new IllegalStateException("Method type not found"));
                 }
                 JavaType.FullyQualified declaringType = method.getDeclaringType();
                 if (declaringType == null) {
-                    recordLowConfidence(ctx, "call.declaringType");
+                    recordLowConfidence(LowConfidenceReason.CALL_DECLARING_TYPE);
                     return j;
                 }
                 String fqn = declaringType.getFullyQualifiedName();
-                if (!includeStdLib && (fqn.startsWith("java.") || fqn.startsWith("groovy.") || fqn.startsWith("kotlin."))) {
+                Scope scope = scopes.peek();
+                if (scope == null) {
+                    return j;
+                }
+                if (!includeStdLib && isStdLib(fqn)) {
+                    scope.file.stdLibEdgesDropped++;
                     return j;
                 }
-                Cursor scope = getCursor().dropParentUntil(it -> it instanceof J.MethodDeclaration || it instanceof J.ClassDeclaration || it instanceof SourceFile);
-                String sourceSet = Optional.ofNullable(scope.firstEnclosing(SourceFile.class))
-                        .map(Tree::getMarkers)
-                        .flatMap(m -> m.findFirst(SourceSet.class))
-                        .map(SourceSet::getName)
-                        .orElse("unknown");
-                if (scope.getValue() instanceof J.ClassDeclaration) {
-                    JavaType.FullyQualified scopeType = ((J.ClassDeclaration) scope.getValue()).getType();
+                if (scope.tree instanceof J.ClassDeclaration) {
+                    JavaType.FullyQualified scopeType = ((J.ClassDeclaration) scope.tree).getType();
                     if (scopeType == null) {
-                        recordLowConfidence(ctx, "call.enclosingClass.type");
+                        recordLowConfidence(LowConfidenceReason.CALL_ENCLOSING_CLASS_TYPE);
                         return j;
                     }
-                    boolean isInStaticInitializer = inStaticInitializer();
-                    if ((isInStaticInitializer && scope.computeMessageIfAbsent("METHODS_CALLED_IN_STATIC_INITIALIZATION", k -> new HashSet<>()).add(method)) ||
-                        (!isInStaticInitializer && scope.computeMessageIfAbsent("METHODS_CALLED_IN_INSTANCE_INITIALIZATION", k -> new HashSet<>()).add(method))) {
-                        callGraph.insertRow(ctx, row(sourceSet, scopeType.getFullyQualifiedName(), method));
+                    if (classGranularity) {
+                        recordClassEdge(scope, scopeType.getFullyQualifiedName(), CallGraph.ResourceAction.CALL, fqn);
+                        return j;
+                    }
+                    boolean isInStaticInitializer = staticInitializers > 0;
+                    Map<JavaType.Method, CallSites> calls = isInStaticInitializer ? scope.staticInitializerCalls : scope.calls;
+                    if (isFirstCallSite(calls, method)) {
+                        recordCallEdge(scope, calls, method,
+                                row(scope, scopeType.getFullyQualifiedName(), isInStaticInitializer, method, ctx));
                     }
-                } else if (scope.getValue() instanceof J.MethodDeclaration) {
-                    JavaType.Method scopeMethod = ((J.MethodDeclaration) scope.getValue()).getMethodType();
-                    if (scopeMethod == null || scopeMethod.getDeclaringType() == null) {
-                        recordLowConfidence(ctx, "call.enclosingMethod.type");
+                } else if (scope.tree instanceof J.MethodDeclaration) {
+                    Signature from = scope.signature;
+                    if (from == null) {
+                        recordLowConfidence(LowConfidenceReason.CALL_ENCLOSING_METHOD_TYPE);
                         return j;
                     }
-                    Set<JavaType.Method> methodsCalledInScope = scope.computeMessageIfAbsent("METHODS_CALLED_IN_SCOPE", k -> new HashSet<>());
-                    if (methodsCalledInScope.add(method)) {
-                        callGraph.insertRow(ctx, row(sourceSet, scopeMethod, method));
+                    if (classGranularity) {
+                        recordClassEdge(scope, from.getDeclaringFqn(), CallGraph.ResourceAction.CALL, fqn);
+                        return j;
                     }
-                } else if (scope.getValue() instanceof SourceFile) {
+                    if (isFirstCallSite(scope.calls, method)) {
+                        recordCallEdge(scope, scope.calls, method, row(scope.file.sourceSet, from, method, ctx));
+                    }
+                } else if (scope.tree instanceof SourceFile) {
                     // In Java there has to be a class declaration, but that isn't the case in Groovy/Kotlin/etc.
                     // So we'll just use the source file path instead
-                    Set<JavaType.Method> methodsCalledInScope = scope.computeMessageIfAbsent("METHODS_CALLED_IN_SCOPE", k -> new HashSet<>());
-                    if (methodsCalledInScope.add(method)) {
-                        callGraph.insertRow(ctx, row(sourceSet, ((SourceFile) scope.getValue()).getSourcePath().toString(), method));
+                    if (classGranularity) {
+                        recordClassEdge(scope, scope.file.sourcePath, CallGraph.ResourceAction.CALL, fqn);
+                        return j;
+                    }
+                    if (isFirstCallSite(scope.calls, method)) {
+                        recordCallEdge(scope, scope.calls, method,
+                                row(scope, scope.file.sourcePath, staticInitializers > 0, method, ctx));
                     }
                 }
                 return j;
             }
 
-            private boolean inStaticInitializer() {
-                AtomicBoolean inStaticInitializer = new AtomicBoolean();
-                getCursor().dropParentUntil(it -> {
-                    if (it instanceof SourceFile) {
-                        return true;
-                    }
-                    if (it instanceof J.Block) {
-                        J.Block b = (J.Block) it;
-                        if (b.isStatic()) {
-                            inStaticInitializer.set(true);
-                            return true;
-                        }
-                    } else if (it instanceof J.VariableDeclarations) {
-                        J.VariableDeclarations vd = (J.VariableDeclarations) it;
-                        if (vd.hasModifier(J.Modifier.Type.Static)) {
-                            inStaticInitializer.set(true);
-                            return true;
-                        }
-                    }
-                    return false;
-                });
-                return inStaticInitializer.get();
+            /**
+             * Record an edge between the classes on either end of a call or reference, once per
+             * source file however many methods and call sites it stands for.
+             */
+            private void recordClassEdge(Scope scope, @Nullable String fromClass, CallGraph.ResourceAction action, String toClass) {
+                if (fromClass == null) {
+                    return;
+                }
+                ClassCallGraph.Row edge = new ClassCallGraph.Row(scope.file.sourceSet, fromClass, action, toClass);
+                if (scope.file.classEdges.add(edge)) {
+                    scope.file.rows.getClassCallGraph().add(edge);
+                }
             }
 
-            private CallGraph.Row row(String sourceSet, String fqn, JavaType.Method to) {
+            /**
+             * Count a call site against the edge it belongs to.
+             *
+             * @return {@code true} if this is the first call site for the edge in the scope, and
+             * so the edge itself still needs to be recorded.
+             */
+            private boolean isFirstCallSite(Map<JavaType.Method, CallSites> calls, JavaType.Method method) {
+                CallSites sites = calls.get(method);
+                if (sites == null) {
+                    return true;
+                }
+                sites.count++;
+                return false;
+            }
+
+            private void recordCallEdge(Scope scope, Map<JavaType.Method, CallSites> calls, JavaType.Method method, CallGraph.Row edge) {
+                scope.file.rows.getCallGraph().add(edge);
+                calls.put(method, new CallSites(edge));
+            }
+
+            private CallGraph.Row row(Scope scope, String fqn, boolean inStaticInitializer, JavaType.Method to, ExecutionContext ctx) {
+                Signature toSignature = signature(to, ctx);
                 return new CallGraph.Row(
-                        sourceSet,
+                        scope.file.sourceSet,
                         fqn,
-                        inStaticInitializer() ? "<clinit>" : "<init>",
+                        inStaticInitializer ? "<clinit>" : "<init>",
                         "",
                         CallGraph.ResourceType.METHOD,
                         CallGraph.ResourceAction.CALL,
-                        declaringFqn(to),
-                        to.getName(),
-                        parameters(to),
-                        resourceType(to),
-                        returnType(to)
+                        toSignature.getDeclaringFqn(),
+                        toSignature.getName(),
+                        toSignature.getParameters(),
+                        toSignature.getResourceType(),
+                        toSignature.getReturnType(),
+                        initializerId(scope, fqn, inStaticInitializer),
+                        toSignature.getId()
                 );
             }
 
-            private CallGraph.Row row(String sourceSet, JavaType.Method from, JavaType.Method to) {
+            private CallGraph.Row row(String sourceSet, Signature from, JavaType.Method to, ExecutionContext ctx) {
+                Signature toSignature = signature(to, ctx);
                 return new CallGraph.Row(
                         sourceSet,
-                        declaringFqn(from),
+                        from.getDeclaringFqn(),
                         from.getName(),
-                        parameters(from),
-                        resourceType(from),
+                        from.getParameters(),
+                        from.getResourceType(),
                         CallGraph.ResourceAction.CALL,
-                        declaringFqn(to),
-                        to.getName(),
-                        parameters(to),
-                        resourceType(to),
-                        returnType(to)
+                        toSignature.getDeclaringFqn(),
+                        toSignature.getName(),
+                        toSignature.getParameters(),
+                        toSignature.getResourceType(),
+                        toSignature.getReturnType(),
+                        from.getId(),
+                        toSignature.getId()
                 );
             }
 
+            /**
+             * Render a method's signature once per recipe run. A hot callee is referenced from many
+             * scopes and files, and {@link JavaType#toString()} on heavily generic parameter types is
+             * expensive, so rendered signatures are cached by the identity of the method type.
+             */
+            private Signature signature(JavaType.Method method, ExecutionContext ctx) {
+                Signature signature = signatures.get(method);
+                if (signature == null) {
+                    Map<JavaType.Method, Signature> runSignatures = shared(SIGNATURES, ctx,
+                            k -> Collections.synchronizedMap(new IdentityHashMap<>()));
+                    signature = runSignatures.get(method);
+                    if (signature == null) {
+                        String declaringFqn = declaringFqn(method);
+                        String parameters = parameters(method);
+                        signature = new Signature(declaringFqn, method.getName(), parameters,
+                                resourceType(method), returnType(method),
+                                CallGraph.nodeId(declaringFqn, method.getName(), parameters));
+                        runSignatures.put(method, signature);
+                    }
+                    signatures.put(method, signature);
+                }
+                return signature;
+            }
+
             /**
              * Declaring-type FQN for a method, or {@code "?"} when type attribution is missing.
              * Callers that have already validated declaring-type non-null still funnel through
@@ -464,6 +921,141 @@ public class FindCallGraph extends Recipe {
 
     }
 
+    /**
+     * Write the call graph file once every source file has been visited.
+     */
+    @Override
+    public void onComplete(ExecutionContext ctx) {
+        if (csrFile == null) {
+            return;
+        }
+        CallGraphFileWriter writer = ctx.getMessage(CALL_GRAPH_FILE);
+        try {
+            Path path = Paths.get(csrFile).toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            (writer == null ? new CallGraphFileWriter() : writer).write(path);
+        } catch (IOException e) {
+            ctx.getOnError().accept(e);
+        }
+    }
+
+    /**
+     * A method, class, or source file declaration that call graph edges are attributed to, along
+     * with the edges already recorded from it so that each is emitted once per scope.
+     */
+    private static class Scope {
+        final Tree tree;
+
+        /**
+         * The file the scope is declared in, shared by every scope nested in it.
+         */
+        final FileContext file;
+
+        /**
+         * The rendered signature of a method scope, or {@code null} for class and source file scopes
+         * and for methods that are missing type attribution.
+         */
+        final @Nullable Signature signature;
+
+        final Map<JavaType.Method, CallSites> calls = new LinkedHashMap<>();
+        final Map<JavaType.Method, CallSites> staticInitializerCalls = new LinkedHashMap<>();
+        final Set<String> typeReferences = new HashSet<>();
+
+        /**
+         * The node ids of the initializers of a class or source file scope, once first needed.
+         */
+        @Nullable Long initializerId;
+        @Nullable Long staticInitializerId;
+
+        Scope(Tree tree, FileContext file, @Nullable Signature signature) {
+            this.tree = tree;
+            this.file = file;
+            this.signature = signature;
+        }
+    }
+
+    /**
+     * A call edge recorded from a scope and the number of call sites in the scope that it stands for.
+     */
+    private static class CallSites {
+        final CallGraph.Row edge;
+        int count = 1;
+
+        CallSites(CallGraph.Row edge) {
+            this.edge = edge;
+        }
+    }
+
+    /**
+     * The source file being visited. Its source set and path are resolved once when the file is
+     * entered, and its rows are buffered until the whole file has been visited.
+     */
+    private static class FileContext {
+        final String sourceSet;
+        final @Nullable String sourcePath;
+        final SourceFileRows rows = new SourceFileRows();
+
+        /**
+         * The {@link ClassCallGraph} edges already recorded for the file, at class granularity.
+         */
+        final Set<ClassCallGraph.Row> classEdges = new HashSet<>();
+
+        /**
+         * A bit for each {@link LowConfidenceReason} already recorded for the file.
+         */
+        int lowConfidenceReasons;
+
+        /**
+         * Counters for {@link CallGraphFileMetrics}, only maintained while metrics are collected.
+         */
+        int nodesVisited;
+        int stdLibEdgesDropped;
+        int lowConfidenceHits;
+
+        FileContext(String sourceSet, @Nullable String sourcePath) {
+            this.sourceSet = sourceSet;
+            this.sourcePath = sourcePath;
+        }
+    }
+
+    /**
+     * The kinds of missing type attribution that cause an edge to be skipped, reported in
+     * {@link LowConfidenceFiles} by their label.
+     */
+    @RequiredArgsConstructor
+    @Getter
+    private enum LowConfidenceReason {
+        CLASS_TYPE("class.type"),
+        FACTORY_ENCLOSING_METHOD_DECLARING_TYPE("factory.enclosingMethod.declaringType"),
+        REFERENCE_ENCLOSING_METHOD_TYPE("reference.enclosingMethod.type"),
+        REFERENCE_ENCLOSING_METHOD_DECLARING_TYPE("reference.enclosingMethod.declaringType"),
+        REFERENCE_ENCLOSING_CLASS_TYPE("reference.enclosingClass.type"),
+        CALL_METHOD_TYPE("call.methodType"),
+        CALL_DECLARING_TYPE("call.declaringType"),
+        CALL_ENCLOSING_CLASS_TYPE("call.enclosingClass.type"),
+        CALL_ENCLOSING_METHOD_TYPE("call.enclosingMethod.type");
+
+        private final String label;
+    }
+
+    /**
+     * A {@link JavaType.Method} rendered to the strings that identify it in a {@link CallGraph.Row}.
+     */
+    @Value
+    static class Signature {
+        String declaringFqn;
+        String name;
+        String parameters;
+        CallGraph.ResourceType resourceType;
+        String returnType;
+
+        /**
+         * The {@link CallGraph#nodeId} of the method. Not computed for the declaring-class-only
+         * signatures of method scopes at class granularity.
+         */
+        long id;
+    }
+
     private static String parameters(JavaType.Method method) {
         StringJoiner joiner = new StringJoiner(",");
         List<JavaType> params = method.getParameterTypes();
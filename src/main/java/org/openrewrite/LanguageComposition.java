@@ -15,42 +15,45 @@
  */
 package org.openrewrite;
 
-import lombok.Data;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.Value;
 import org.jspecify.annotations.Nullable;
-import org.openrewrite.binary.Binary;
 import org.openrewrite.internal.ExceptionUtils;
-import org.openrewrite.cobol.tree.CobolPreprocessor;
-import org.openrewrite.controlm.tree.ControlM;
-import org.openrewrite.csharp.tree.Cs;
-import org.openrewrite.docker.tree.Docker;
-import org.openrewrite.groovy.tree.G;
-import org.openrewrite.hcl.tree.Hcl;
-import org.openrewrite.java.tree.J;
-import org.openrewrite.javascript.tree.JS;
-import org.openrewrite.jcl.tree.Jcl;
-import org.openrewrite.json.tree.Json;
-import org.openrewrite.kotlin.tree.K;
-import org.openrewrite.properties.tree.Properties;
-import org.openrewrite.protobuf.tree.Proto;
-import org.openrewrite.python.tree.Py;
-import org.openrewrite.quark.Quark;
-import org.openrewrite.remote.Remote;
+import org.openrewrite.cache.CacheFiles;
+import org.openrewrite.composition.LanguageClassifier;
+import org.openrewrite.composition.LanguageClassifiers;
+import org.openrewrite.composition.LanguageCompositionCache;
+import org.openrewrite.composition.LineCount;
+import org.openrewrite.composition.LineCountHistogram;
+import org.openrewrite.table.LanguageCompositionPercentiles;
 import org.openrewrite.table.LanguageCompositionPerFile;
 import org.openrewrite.table.LanguageCompositionPerFolder;
 import org.openrewrite.table.LanguageCompositionPerRepository;
 import org.openrewrite.table.SourcesFileErrors;
 import org.openrewrite.text.PlainText;
-import org.openrewrite.toml.tree.Toml;
-import org.openrewrite.tree.ParseError;
-import org.openrewrite.xml.tree.Xml;
-import org.openrewrite.yaml.tree.Yaml;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
 
 import static java.util.Collections.emptyList;
 
@@ -58,11 +61,15 @@ import static java.util.Collections.emptyList;
 @Value
 public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accumulator> {
 
-    private static final String OTHER = "Other/unknown/unparseable";
+    private static final String OTHER = LanguageClassifier.OTHER;
+
+    private static final int PARTIAL_MAGIC = 0x52574c43; // "RWLC"
+    private static final int PARTIAL_VERSION = 1;
 
     transient LanguageCompositionPerRepository perRepositoryReport = new LanguageCompositionPerRepository(this);
     transient LanguageCompositionPerFolder perFolderReport = new LanguageCompositionPerFolder(this);
     transient LanguageCompositionPerFile perFileReport = new LanguageCompositionPerFile(this);
+    transient LanguageCompositionPercentiles percentilesReport = new LanguageCompositionPercentiles(this);
     transient SourcesFileErrors errorsTable = new SourcesFileErrors(this);
 
     String displayName = "Language composition report";
@@ -72,18 +79,217 @@ public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accu
             "This recipe emits its results as two data tables, making no changes to any source file. " +
             "One data table is per-file, the other is per-repository.";
 
-    @Data
+    @Option(displayName = "Cache directory",
+            description = "A directory in which the language and line counts of each source file are cached between " +
+                          "runs. Source files whose checksum is unchanged since they were cached are not counted again. " +
+                          "Source files without a checksum are never cached, so parsers that don't record one should " +
+                          "have one recorded at parse time with `SourceChecksum.mark`.",
+            example = "build/rewrite/language-composition",
+            required = false)
+    @Nullable
+    String cacheDirectory;
+
+    @Option(displayName = "Skip per-file report",
+            description = "Don't report a row per source file. The lines per file percentiles of each language in " +
+                          "each folder are reported either way, and on a large repository are a fraction of the size. " +
+                          "Defaults to `false`.",
+            required = false)
+    @Nullable
+    Boolean skipPerFileReport;
+
+    @Option(displayName = "Maximum file size",
+            description = "The number of characters of a source file to print when counting its lines. The lines of a " +
+                          "larger file are estimated from those printed and the file's size when it was parsed. " +
+                          "Plain text is counted without printing it, and so is always counted in full.",
+            example = "10000000",
+            required = false)
+    @Nullable
+    Long maxFileSize;
+
+    @Option(displayName = "Maximum milliseconds per file",
+            description = "How long to spend counting the lines of a single source file. The lines of a file that " +
+                          "takes longer are estimated from those counted so far and the file's size when it was parsed.",
+            example = "5000",
+            required = false)
+    @Nullable
+    Long maxMillisPerFile;
+
+    @Option(displayName = "Partial results directory",
+            description = "A directory of partial results written by runs over other shards of the repository. The " +
+                          "counts in every file in the directory, other than this run's own partial results file, are " +
+                          "added to this run's before the per-folder and per-repository reports are produced.",
+            example = "build/rewrite/language-composition-shards",
+            required = false)
+    @Nullable
+    String mergePartials;
+
+    @Option(displayName = "Partial results file",
+            description = "A file to write the counts of the source files scanned by this run to, so that they can be " +
+                          "merged by a later run. Counts merged from other shards are not included, so a shard's " +
+                          "results are counted once however many times it is run.",
+            example = "build/rewrite/language-composition/partial",
+            required = false)
+    @Nullable
+    String writePartial;
+
+    /**
+     * Counts of files and lines by folder and language. Source files may be scanned into the same accumulator
+     * from several threads, and accumulators filled by independent workers may be combined with {@link #merge}.
+     */
     public static class Accumulator {
-        Map<String, Map<String, Counts>> folderToLanguageToCounts = new HashMap<>();
+        /**
+         * The repository root. Folders are nested by path segment, so the common prefixes of folder paths
+         * are held once.
+         */
+        @Getter(AccessLevel.PACKAGE)
+        private final Folder root = new Folder();
+
+        /**
+         * Add the counts of another accumulator to this one. Counts are sums, so the result does not depend
+         * on the order in which partial accumulators are merged.
+         */
+        public Accumulator merge(Accumulator other) {
+            root.merge(other.root);
+            return this;
+        }
+
+        /**
+         * Add the counts of a partial result written by {@link #write(Path)}, without first reading it into an
+         * accumulator of its own.
+         */
+        public Accumulator merge(Path partial) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(partial)))) {
+                if (in.readInt() != PARTIAL_MAGIC) {
+                    throw new IOException(partial + " is not a language composition partial result");
+                }
+                int version = in.readInt();
+                if (version != PARTIAL_VERSION) {
+                    throw new IOException("Unsupported language composition partial result version " + version);
+                }
+                root.read(in);
+            }
+            return this;
+        }
+
+        /**
+         * Write the folder trie and the counts of each folder, from which a run over another shard of the same
+         * repository can {@link #merge(Path)} them exactly.
+         */
+        public void write(Path partial) throws IOException {
+            Path directory = partial.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            // Write to a temporary file first so that a run merging the directory never sees a partial write
+            Path temp = Files.createTempFile(directory, partial.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(PARTIAL_MAGIC);
+                    out.writeInt(PARTIAL_VERSION);
+                    root.write(out);
+                }
+                Files.move(temp, partial, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        Counts counts(SourceFile s, String language) {
+            String sourcePath = PathUtils.separatorsToUnix(s.getSourcePath().toString());
+            int lastSlash = sourcePath.lastIndexOf('/');
+            Folder folder = root;
+            for (int start = 0; start < lastSlash; ) {
+                int end = sourcePath.indexOf('/', start);
+                if (end > start) {
+                    folder = folder.child(sourcePath.substring(start, end));
+                }
+                start = end + 1;
+            }
+            return folder.counts(language);
+        }
     }
 
-    private static String containingFolderPath(SourceFile s) {
-        String sourcePath = PathUtils.separatorsToUnix(s.getSourcePath().toString());
-        int lastSlash = sourcePath.lastIndexOf('/');
-        if (lastSlash == -1) {
-            return "";
+    private static class Folder {
+        // Most folders have either no subfolders or no files of their own, so both maps are only
+        // allocated when first needed
+        volatile @Nullable Map<String, Folder> children;
+
+        volatile @Nullable Map<String, Counts> languageToCounts;
+
+        Folder child(String name) {
+            Map<String, Folder> c = children;
+            if (c == null) {
+                synchronized (this) {
+                    c = children;
+                    if (c == null) {
+                        children = c = new ConcurrentHashMap<>();
+                    }
+                }
+            }
+            return c.computeIfAbsent(name, k -> new Folder());
+        }
+
+        Counts counts(String language) {
+            Map<String, Counts> l = languageToCounts;
+            if (l == null) {
+                synchronized (this) {
+                    l = languageToCounts;
+                    if (l == null) {
+                        languageToCounts = l = new ConcurrentHashMap<>();
+                    }
+                }
+            }
+            return l.computeIfAbsent(language, k -> new Counts());
+        }
+
+        void merge(Folder other) {
+            Map<String, Folder> otherChildren = other.children;
+            if (otherChildren != null) {
+                for (Map.Entry<String, Folder> child : otherChildren.entrySet()) {
+                    child(child.getKey()).merge(child.getValue());
+                }
+            }
+            Map<String, Counts> otherLanguages = other.languageToCounts;
+            if (otherLanguages != null) {
+                for (Map.Entry<String, Counts> language : otherLanguages.entrySet()) {
+                    counts(language.getKey()).add(language.getValue());
+                }
+            }
+        }
+
+        void write(DataOutput out) throws IOException {
+            Map<String, Folder> c = children;
+            out.writeInt(c == null ? 0 : c.size());
+            if (c != null) {
+                for (Map.Entry<String, Folder> child : c.entrySet()) {
+                    out.writeUTF(child.getKey());
+                    child.getValue().write(out);
+                }
+            }
+            Map<String, Counts> l = languageToCounts;
+            out.writeInt(l == null ? 0 : l.size());
+            if (l != null) {
+                for (Map.Entry<String, Counts> language : l.entrySet()) {
+                    out.writeUTF(language.getKey());
+                    out.writeLong(language.getValue().fileCount.sum());
+                    out.writeLong(language.getValue().lineCount.sum());
+                    language.getValue().linesPerFile.write(out);
+                }
+            }
+        }
+
+        /**
+         * Add the counts of a folder written by {@link #write(DataOutput)} to this one.
+         */
+        void read(DataInput in) throws IOException {
+            for (int i = in.readInt(); i > 0; i--) {
+                child(in.readUTF()).read(in);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                Counts counts = counts(in.readUTF());
+                counts.fileCount.add(in.readLong());
+                counts.lineCount.add(in.readLong());
+                counts.linesPerFile.merge(LineCountHistogram.read(in));
+            }
         }
-        return s.getSourcePath().toString().substring(0, lastSlash);
     }
 
     @Override
@@ -94,6 +300,9 @@ public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accu
     @Override
     public TreeVisitor<?, ExecutionContext> getScanner(Accumulator acc) {
         return new TreeVisitor<Tree, ExecutionContext>() {
+            private final @Nullable LanguageCompositionCache cache = cacheDirectory == null ?
+                    null : new LanguageCompositionCache(Paths.get(cacheDirectory));
+
             @Override
             public @Nullable Tree visit(@Nullable Tree tree, ExecutionContext ctx) {
                 if (!(tree instanceof SourceFile)) {
@@ -101,7 +310,21 @@ public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accu
                 }
 
                 SourceFile s = (SourceFile) tree;
-                String folderPath = containingFolderPath(s);
+                String sourcePath = s.getSourcePath().toString();
+                String fingerprint = null;
+                if (cache != null && s.getChecksum() != null) {
+                    try {
+                        fingerprint = CacheFiles.fingerprint(s.getChecksum());
+                        LanguageCompositionCache.Entry cached = cache.read(sourcePath, fingerprint);
+                        if (cached != null) {
+                            record(s, cached, false, ctx);
+                            return tree;
+                        }
+                    } catch (IOException e) {
+                        ctx.getOnError().accept(e);
+                    }
+                }
+
                 // Parse failures *should* only ever appear on PlainText sources, but always checking finds a parser bug
                 boolean hasParseFailure = s.getMarkers().findFirst(ParseExceptionResult.class).isPresent();
 
@@ -109,19 +332,22 @@ public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accu
                 try {
                     language = language(s);
                 } catch (RuntimeException | Error e) {
-                    // Classification itself failed, e.g. a NoClassDefFoundError when a language module is not on
-                    // the classpath. Record the file as "Error" so it still appears in the reports, then rethrow
-                    // so the failure also surfaces in the Error data table.
-                    Counts errorCounts = acc.getFolderToLanguageToCounts()
-                            .computeIfAbsent(folderPath, k -> new HashMap<>())
-                            .computeIfAbsent("Error", k -> new Counts());
-                    errorCounts.fileCount++;
-                    perFileReport.insertRow(ctx, new LanguageCompositionPerFile.Row(
-                            s.getSourcePath().toString(),
-                            "Error",
-                            s.getClass().getName(),
-                            0,
-                            false));
+                    // Classification itself failed, e.g. in a classifier registered by a language module. Missing
+                    // language modules are skipped by the built-in classifier, so this is not expected for those.
+                    // Record the file as "Error" so it still appears in the reports, then rethrow so the failure
+                    // also surfaces in the Error data table.
+                    Counts errorCounts = acc.counts(s, "Error");
+                    errorCounts.fileCount.increment();
+                    errorCounts.linesPerFile.add(0);
+                    if (!Boolean.TRUE.equals(skipPerFileReport)) {
+                        insertRow(perFileReport, ctx, new LanguageCompositionPerFile.Row(
+                                s.getSourcePath().toString(),
+                                "Error",
+                                s.getClass().getName(),
+                                0,
+                                false,
+                                false));
+                    }
                     throw e;
                 }
                 if (language == null) {
@@ -132,54 +358,66 @@ public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accu
                 // Counting lines prints the LST, which for some languages (e.g. Python) happens over RPC and can
                 // fail independently of a successful parse. A counting failure must not reclassify the file as
                 // "Error"; it remains classified by its language with a line count of zero, while the failure is
-                // recorded in the standard error table so it stays diagnosable.
-                int linesOfText = OTHER.equals(language) ? 0 : safeLineCount(s, ctx, () -> LineCounter.count(s));
-                int languageLineCount = OTHER.equals(language) ? 0 : safeLineCount(s, ctx, () -> codeLineCount(s, language, linesOfText));
-
-                Counts counts = acc.getFolderToLanguageToCounts()
-                        .computeIfAbsent(folderPath, k -> new HashMap<>())
-                        .computeIfAbsent(language, k -> new Counts());
-                counts.fileCount++;
-                counts.lineCount += languageLineCount;
-                perFileReport.insertRow(ctx, new LanguageCompositionPerFile.Row(
-                        s.getSourcePath().toString(),
-                        language,
-                        s.getClass().getName(),
-                        linesOfText,
-                        hasParseFailure));
+                // recorded in the standard error table so it stays diagnosable. A count recorded at parse time is
+                // used as is, so the LST is only printed for sources parsed without one.
+                LineCount parsedLineCount = s.getMarkers().findFirst(LineCount.class).orElse(null);
+                int linesOfText;
+                boolean estimated = false;
+                if (OTHER.equals(language)) {
+                    linesOfText = 0;
+                } else if (parsedLineCount != null) {
+                    linesOfText = parsedLineCount.getLinesOfText();
+                } else {
+                    LineCounter counter = new LineCounter(maxFileSize, maxMillisPerFile);
+                    linesOfText = safeLineCount(s, ctx, () -> counter.count(s));
+                    estimated = counter.isEstimated();
+                }
+                // Counting lines of code visits the whole LST, which is the work the budget cut short
+                int languageLineCount = OTHER.equals(language) ? 0 : estimated ? linesOfText :
+                        safeLineCount(s, ctx, () -> codeLineCount(s, language, Math.max(linesOfText, 0)));
+
+                LanguageCompositionCache.Entry entry = new LanguageCompositionCache.Entry(language,
+                        Math.max(linesOfText, 0), Math.max(languageLineCount, 0), hasParseFailure);
+                record(s, entry, estimated, ctx);
+
+                // A count that failed or was estimated is tried again on the next run rather than cached
+                if (cache != null && fingerprint != null && linesOfText >= 0 && languageLineCount >= 0 && !estimated) {
+                    try {
+                        cache.write(sourcePath, fingerprint, entry);
+                    } catch (IOException e) {
+                        ctx.getOnError().accept(e);
+                    }
+                }
                 return tree;
             }
+
+            private void record(SourceFile s, LanguageCompositionCache.Entry entry, boolean estimated, ExecutionContext ctx) {
+                Counts counts = acc.counts(s, entry.getLanguage());
+                counts.fileCount.increment();
+                counts.lineCount.add(entry.getLineCount());
+                counts.linesPerFile.add(entry.getLinesOfText());
+                if (!Boolean.TRUE.equals(skipPerFileReport)) {
+                    insertRow(perFileReport, ctx, new LanguageCompositionPerFile.Row(
+                            s.getSourcePath().toString(),
+                            entry.getLanguage(),
+                            s.getClass().getName(),
+                            entry.getLinesOfText(),
+                            entry.isHasParseFailure(),
+                            estimated));
+                }
+            }
         };
     }
 
     /**
-     * Classify a source file by language. This relies only on cheap type checks so that, unlike line counting,
-     * it does not fail for a successfully parsed file. Returns {@code null} for JavaScript/TypeScript sources
-     * whose extension we don't report on. May throw a {@link NoClassDefFoundError} when a language module is not
-     * on the classpath, in which case the caller records the file as "Error".
+     * Classify a source file by language. The language of each source file class is looked up once, so that,
+     * unlike line counting, classification does not fail for a successfully parsed file. Returns {@code null}
+     * for JavaScript/TypeScript sources whose extension we don't report on.
      */
     private static @Nullable String language(SourceFile s) {
-        if (s instanceof Quark || s instanceof Binary || s instanceof Remote) {
-            return OTHER;
-        } else if (s instanceof CobolPreprocessor.Copybook) {
-            return "Copybook";
-        } else if (s.getClass().getName().startsWith("org.openrewrite.cobol.tree.Cobol")) { // Also CobolPreprocessor
-            return "Cobol";
-        } else if (s instanceof ControlM) {
-            return "Control-M";
-        } else if (s instanceof Docker) {
-            return "Docker";
-        } else if (s instanceof Jcl) {
-            return "JCL";
-        } else if (s instanceof K) {
-            return "Kotlin";
-        } else if (s instanceof G) {
-            return "Groovy";
-        } else if (s instanceof Py) {
-            return "Python";
-        } else if (s instanceof Cs.CompilationUnit) {
-            return "C#";
-        } else if (s instanceof JS) {
+        String language = LanguageClassifiers.language(s.getClass());
+        if ("JavaScript".equals(language)) {
+            // JavaScript and TypeScript share a tree, so they are told apart by extension
             String sourcePath = s.getSourcePath().toString();
             if (sourcePath.endsWith(".js") || sourcePath.endsWith(".jsx") || sourcePath.endsWith(".mjs")) {
                 return "JavaScript";
@@ -187,28 +425,8 @@ public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accu
                 return "Typescript";
             }
             return null;
-        } else if (s instanceof J) {
-            return "Java";
-        } else if (s instanceof Json) {
-            return "Json";
-        } else if (s instanceof Hcl) {
-            return "Hcl";
-        } else if (s instanceof Properties) {
-            return "Properties";
-        } else if (s instanceof Proto) {
-            return "Protobuf";
-        } else if (s instanceof Toml) {
-            return "Toml";
-        } else if (s instanceof Xml) {
-            return "Xml";
-        } else if (s instanceof Yaml) {
-            return "Yaml";
-        } else if (s instanceof PlainText) {
-            return "Plain text";
-        } else if (s instanceof ParseError) {
-            return "Parse error";
         }
-        return "Unknown";
+        return language;
     }
 
     /**
@@ -220,86 +438,260 @@ public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accu
             case "Kotlin":
                 // Don't have a kotlin-specific counter yet and Java count should be very close
             case "Java":
-                return org.openrewrite.java.CountLinesVisitor.countLines(s);
+                return JavaLines.COUNTER.applyAsInt(s);
             case "Groovy":
-                return org.openrewrite.groovy.CountLinesVisitor.countLines(s);
+                return GroovyLines.COUNTER.applyAsInt(s);
             case "Json":
-                return org.openrewrite.json.CountLinesVisitor.countLines(s);
+                return JsonLines.COUNTER.applyAsInt(s);
             case "Hcl":
-                return org.openrewrite.hcl.CountLinesVisitor.countLines(s);
+                return HclLines.COUNTER.applyAsInt(s);
             case "Properties":
-                return org.openrewrite.properties.CountLinesVisitor.countLines(s);
+                return PropertiesLines.COUNTER.applyAsInt(s);
             case "Protobuf":
-                return org.openrewrite.protobuf.CountLinesVisitor.countLines(s);
+                return ProtobufLines.COUNTER.applyAsInt(s);
             case "Xml":
-                return org.openrewrite.xml.CountLinesVisitor.countLines(s);
+                return XmlLines.COUNTER.applyAsInt(s);
             case "Yaml":
-                return org.openrewrite.yaml.CountLinesVisitor.countLines(s);
+                return YamlLines.COUNTER.applyAsInt(s);
             default:
                 return genericLineCount;
         }
     }
 
+    // Each language's dedicated counter is held by a class of its own, which the JVM only initializes, and so
+    // only links against the language module, when the first file of that language is counted.
+
+    private static final class JavaLines {
+        static final ToIntFunction<SourceFile> COUNTER = org.openrewrite.java.CountLinesVisitor::countLines;
+    }
+
+    private static final class GroovyLines {
+        static final ToIntFunction<SourceFile> COUNTER = org.openrewrite.groovy.CountLinesVisitor::countLines;
+    }
+
+    private static final class JsonLines {
+        static final ToIntFunction<SourceFile> COUNTER = org.openrewrite.json.CountLinesVisitor::countLines;
+    }
+
+    private static final class HclLines {
+        static final ToIntFunction<SourceFile> COUNTER = org.openrewrite.hcl.CountLinesVisitor::countLines;
+    }
+
+    private static final class PropertiesLines {
+        static final ToIntFunction<SourceFile> COUNTER = org.openrewrite.properties.CountLinesVisitor::countLines;
+    }
+
+    private static final class ProtobufLines {
+        static final ToIntFunction<SourceFile> COUNTER = org.openrewrite.protobuf.CountLinesVisitor::countLines;
+    }
+
+    private static final class XmlLines {
+        static final ToIntFunction<SourceFile> COUNTER = org.openrewrite.xml.CountLinesVisitor::countLines;
+    }
+
+    private static final class YamlLines {
+        static final ToIntFunction<SourceFile> COUNTER = org.openrewrite.yaml.CountLinesVisitor::countLines;
+    }
+
     /**
      * Count lines without letting a counting failure reclassify the file. Counting prints the LST, which for
      * some languages happens over RPC and can fail even though the file parsed successfully. Recoverable
      * failures are recorded in {@link SourcesFileErrors} (the same table the framework uses for recipe errors)
-     * and degrade to a count of zero; unrecoverable {@link Error}s (e.g. {@link OutOfMemoryError}) are allowed
-     * to propagate.
+     * and return {@code -1}, which callers report as a count of zero; unrecoverable {@link Error}s (e.g.
+     * {@link OutOfMemoryError}) are allowed to propagate.
      */
     private int safeLineCount(SourceFile s, ExecutionContext ctx, IntSupplier counter) {
         try {
             return counter.getAsInt();
         } catch (RuntimeException e) {
-            errorsTable.insertRow(ctx, new SourcesFileErrors.Row(
+            insertRow(errorsTable, ctx, new SourcesFileErrors.Row(
                     s.getSourcePath().toString(),
                     getName(),
                     ExceptionUtils.sanitizeStackTrace(e, LanguageComposition.class)));
-            return 0;
+            return -1;
+        }
+    }
+
+    /**
+     * Data tables are not thread-safe, so rows inserted while scanning, where files may be scanned
+     * concurrently, are inserted one at a time.
+     */
+    private <R> void insertRow(DataTable<R> table, ExecutionContext ctx, R row) {
+        synchronized (perFileReport) {
+            table.insertRow(ctx, row);
         }
     }
 
     @Override
     public Collection<? extends SourceFile> generate(Accumulator acc, ExecutionContext ctx) {
-        Map<String, Counts> languageToCount = new HashMap<>();
-        for (Map.Entry<String, Map<String, Counts>> entry : acc.getFolderToLanguageToCounts().entrySet()) {
-            for (Map.Entry<String, Counts> languageEntry : entry.getValue().entrySet()) {
-                perFolderReport.insertRow(ctx, new LanguageCompositionPerFolder.Row(entry.getKey(),
-                        languageEntry.getKey(), languageEntry.getValue().fileCount, languageEntry.getValue().lineCount));
-
-                Counts counts = languageToCount.computeIfAbsent(languageEntry.getKey(), k -> new Counts());
-                counts.fileCount += languageEntry.getValue().fileCount;
-                counts.lineCount += languageEntry.getValue().lineCount;
+        // This run's own counts are written before any are merged, so that a partial never contains another's
+        Path ownPartial = writePartial == null ? null : Paths.get(writePartial).toAbsolutePath().normalize();
+        if (ownPartial != null) {
+            try {
+                acc.write(ownPartial);
+            } catch (IOException e) {
+                ctx.getOnError().accept(e);
             }
         }
+        if (mergePartials != null) {
+            // Skip this run's own partial, left over from a previous run if it failed to write, and the
+            // temporary files of partial results still being written
+            try (DirectoryStream<Path> partials = Files.newDirectoryStream(Paths.get(mergePartials),
+                    p -> Files.isRegularFile(p) && !p.toAbsolutePath().normalize().equals(ownPartial) &&
+                         !p.getFileName().toString().endsWith(".tmp"))) {
+                for (Path partial : partials) {
+                    acc.merge(partial);
+                }
+            } catch (IOException e) {
+                ctx.getOnError().accept(e);
+            }
+        }
+
+        // The subtree of the repository root is the whole repository
+        Map<String, Counts> languageToCount = generate(acc.getRoot(), "", ctx);
         for (Map.Entry<String, Counts> entry : languageToCount.entrySet()) {
-            perRepositoryReport.insertRow(ctx, new LanguageCompositionPerRepository.Row(entry.getKey(), entry.getValue().fileCount, entry.getValue().lineCount));
+            perRepositoryReport.insertRow(ctx, new LanguageCompositionPerRepository.Row(entry.getKey(),
+                    entry.getValue().fileCount.sum(), entry.getValue().lineCount.sum()));
         }
 
         return emptyList();
     }
 
+    /**
+     * Report a folder and everything beneath it, with a row for every language found anywhere in the
+     * folder's subtree.
+     *
+     * @return The counts of each language in the folder's subtree.
+     */
+    private Map<String, Counts> generate(Folder folder, String folderPath, ExecutionContext ctx) {
+        // Folders and languages are visited in sorted order, so that rows are reported in the same order
+        // however the accumulator was filled
+        Map<String, Counts> subtree = new TreeMap<>();
+        Map<String, Folder> children = folder.children;
+        if (children != null) {
+            for (Map.Entry<String, Folder> child : new TreeMap<>(children).entrySet()) {
+                String childPath = folderPath.isEmpty() ? child.getKey() : folderPath + "/" + child.getKey();
+                for (Map.Entry<String, Counts> languageEntry : generate(child.getValue(), childPath, ctx).entrySet()) {
+                    subtree.computeIfAbsent(languageEntry.getKey(), k -> new Counts()).add(languageEntry.getValue());
+                }
+            }
+        }
+        Map<String, Counts> languageToCounts = folder.languageToCounts;
+        if (languageToCounts != null) {
+            for (Map.Entry<String, Counts> languageEntry : languageToCounts.entrySet()) {
+                subtree.computeIfAbsent(languageEntry.getKey(), k -> new Counts()).add(languageEntry.getValue());
+            }
+        }
+
+        String reportedPath = PathUtils.separatorsToSystem(folderPath);
+        for (Map.Entry<String, Counts> languageEntry : subtree.entrySet()) {
+            Counts direct = languageToCounts == null ? null : languageToCounts.get(languageEntry.getKey());
+            perFolderReport.insertRow(ctx, new LanguageCompositionPerFolder.Row(reportedPath,
+                    languageEntry.getKey(),
+                    direct == null ? 0 : direct.fileCount.sum(),
+                    direct == null ? 0 : direct.lineCount.sum(),
+                    languageEntry.getValue().fileCount.sum(),
+                    languageEntry.getValue().lineCount.sum()));
+            LineCountHistogram linesPerFile = languageEntry.getValue().linesPerFile;
+            percentilesReport.insertRow(ctx, new LanguageCompositionPercentiles.Row(reportedPath,
+                    languageEntry.getKey(),
+                    linesPerFile.getCount(),
+                    linesPerFile.percentile(50),
+                    linesPerFile.percentile(90),
+                    linesPerFile.percentile(99),
+                    linesPerFile.getMax()));
+        }
+        return subtree;
+    }
+
+    /**
+     * Counts that may be incremented from several threads at once. Line counts of a large repository can
+     * exceed the range of an {@code int}, so counts are summed as {@code long}s.
+     */
     private static class Counts {
-        int lineCount;
-        int fileCount;
+        final LongAdder lineCount = new LongAdder();
+        final LongAdder fileCount = new LongAdder();
+
+        /**
+         * The lines of text of each file, as reported per file.
+         */
+        final LineCountHistogram linesPerFile = new LineCountHistogram();
+
+        void add(Counts counts) {
+            lineCount.add(counts.lineCount.sum());
+            fileCount.add(counts.fileCount.sum());
+            linesPerFile.merge(counts.linesPerFile);
+        }
     }
 
+    /**
+     * Counts the lines of a source file by printing it, within an optional budget of characters printed and
+     * time taken. When either is exceeded printing stops, and the count is estimated from the lines printed
+     * so far and the size of the file when it was parsed.
+     */
     private static class LineCounter extends PrintOutputCapture<Integer> {
+        private static final BudgetExceeded BUDGET_EXCEEDED = new BudgetExceeded();
+
+        private final long maxCharacters;
+        private final @Nullable Long maxMillis;
+        private long deadline;
+        private long characters;
+        private int appends;
         private int count;
         private boolean startedLine;
 
-        public LineCounter() {
+        @Getter
+        private boolean estimated;
+
+        LineCounter(@Nullable Long maxCharacters, @Nullable Long maxMillis) {
             super(0);
+            this.maxCharacters = maxCharacters == null ? Long.MAX_VALUE : maxCharacters;
+            this.maxMillis = maxMillis;
         }
 
-        static int count(SourceFile s) {
-            LineCounter counter = new LineCounter();
-            s.printAll(counter);
-            return counter.getLineCount();
+        int count(SourceFile s) {
+            if (s instanceof PlainText) {
+                PlainText text = (PlainText) s;
+                if (text.getSnippets() == null || text.getSnippets().isEmpty()) {
+                    // The text is the whole of what would be printed, so there is no need to print it
+                    return LineCount.count(text.getText());
+                }
+            }
+            deadline = maxMillis == null ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+            try {
+                s.printAll(this);
+            } catch (RuntimeException e) {
+                // The printer's visitor may wrap the exception thrown from append()
+                for (Throwable t = e; t != BUDGET_EXCEEDED; t = t.getCause()) {
+                    if (t == null) {
+                        throw e;
+                    }
+                }
+                estimated = true;
+                FileAttributes fileAttributes = s.getFileAttributes();
+                if (fileAttributes != null && characters > 0 && fileAttributes.getSize() > characters) {
+                    return (int) Math.min(Integer.MAX_VALUE,
+                            (long) Math.ceil((double) getLineCount() * fileAttributes.getSize() / characters));
+                }
+                // Without a size to extrapolate from, the lines printed so far are the best estimate there is
+            }
+            return getLineCount();
+        }
+
+        private void checkDeadline() {
+            // Reading the clock costs about as much as appending a token, so it is only read occasionally
+            if (maxMillis != null && (++appends & 1023) == 0 && System.nanoTime() - deadline > 0) {
+                throw BUDGET_EXCEEDED;
+            }
         }
 
         @Override
         public PrintOutputCapture<Integer> append(char c) {
+            checkDeadline();
+            if (characters >= maxCharacters) {
+                throw BUDGET_EXCEEDED;
+            }
+            characters++;
             if (c == '\n') {
                 count++;
                 startedLine = false;
@@ -311,11 +703,24 @@ public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accu
 
         @Override
         public PrintOutputCapture<Integer> append(@Nullable String text) {
-            if (text == null) {
+            if (text == null || text.isEmpty()) {
                 return this;
             }
-            for (int i = 0; i < text.length(); i++) {
-                append(text.charAt(i));
+            checkDeadline();
+            // Only the part of the fragment within the budget is counted, so that an estimate is
+            // extrapolated from exactly the characters whose line breaks were counted
+            int end = (int) Math.min(text.length(), maxCharacters - characters);
+            // Most printed fragments are single tokens without a line break, so look for line breaks
+            // rather than examining every character
+            for (int i = text.indexOf('\n'); i != -1 && i < end; i = text.indexOf('\n', i + 1)) {
+                count++;
+            }
+            characters += end;
+            if (end > 0) {
+                startedLine = text.charAt(end - 1) != '\n';
+            }
+            if (end < text.length()) {
+                throw BUDGET_EXCEEDED;
             }
             return this;
         }
@@ -325,4 +730,11 @@ public class LanguageComposition extends ScanningRecipe<LanguageComposition.Accu
         }
     }
 
+    private static class BudgetExceeded extends RuntimeException {
+        BudgetExceeded() {
+            // Thrown to stop printing, so there is no stack trace to fill in
+            super("Line counting budget exceeded", null, false, false);
+        }
+    }
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.cache;
+
+import org.openrewrite.Checksum;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Fingerprints and file handling shared by the caches that keep the results of a recipe for each
+ * source file between runs. Entries are keyed by a source file's checksum, so source files without
+ * one are never cached: fingerprinting them would mean printing them, which costs about as much as
+ * the work the caches exist to avoid. See {@link SourceChecksum} for recording one at parse time.
+ */
+public final class CacheFiles {
+    private CacheFiles() {
+    }
+
+    public static String fingerprint(Checksum checksum) {
+        return checksum.getAlgorithm() + ":" + hex(checksum.getValue());
+    }
+
+    /**
+     * The file in a cache directory holding the entry for a key, named by the key's hash so that
+     * any key, such as a source path, makes a valid file name.
+     */
+    public static Path entry(Path directory, String key) {
+        return directory.resolve(hex(sha256().digest(key.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Write an entry to a temporary file first and move it into place, so that concurrent readers
+     * never see a partial entry.
+     */
+    public static void write(Path directory, Path entry, EntryWriter writer) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                writer.write(out);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.cache;
+
+import org.openrewrite.Checksum;
+import org.openrewrite.SourceFile;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A checksum of the text a source file was parsed from. Parsers such as {@code JavaParser} do not
+ * record a checksum, and a source file without one is never cached, so the parser's caller can
+ * stamp one on each source file it parses. The checksum describes the source as parsed, so it
+ * should not be carried over to a source file that a recipe has changed.
+ */
+public final class SourceChecksum {
+    private SourceChecksum() {
+    }
+
+    /**
+     * Mark a source file with the SHA-256 checksum of the text it was parsed from, encoded in the
+     * source file's charset.
+     */
+    public static <S extends SourceFile> S mark(S sourceFile, String sourceText) {
+        Charset charset = sourceFile.getCharset() == null ? StandardCharsets.UTF_8 : sourceFile.getCharset();
+        byte[] digest = CacheFiles.sha256().digest(sourceText.getBytes(charset));
+        return sourceFile.withChecksum(new Checksum("SHA-256", digest));
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.callgraph;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.Checksum;
+import org.openrewrite.cache.CacheFiles;
+import org.openrewrite.java.marker.JavaSourceSet;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.table.CallGraph;
+import org.openrewrite.table.CallSiteCounts;
+import org.openrewrite.table.ClassCallGraph;
+import org.openrewrite.table.FactoryEdges;
+import org.openrewrite.table.LowConfidenceFiles;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.TreeSet;
+
+/**
+ * A directory of {@link SourceFileRows}, one file per cache key. Each entry records the
+ * fingerprint of the source file it was produced from, and is only returned while that
+ * fingerprint still matches. The fingerprint starts from the source file's checksum, so as
+ * {@link CacheFiles} explains, source files without one are never cached.
+ */
+public class CallGraphCache {
+    private static final int VERSION = 4;
+
+    private final Path directory;
+
+    public CallGraphCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * A fingerprint of a source file's contents and of the classpath its types were attributed
+     * against. The rows of a source file also depend on its dependencies: the signatures of the
+     * methods it calls, which overload a call resolves to, and the supertypes of the classes it
+     * constructs. So an entry is only valid for the classpath it was produced with.
+     * <p>
+     * Changes to other source files of the same source set are not part of the fingerprint.
+     */
+    public static String fingerprint(Checksum checksum, @Nullable String classpathFingerprint) {
+        return CacheFiles.fingerprint(checksum) + "," +
+               (classpathFingerprint == null ? "" : classpathFingerprint);
+    }
+
+    /**
+     * A fingerprint of the dependency coordinates and the classpath types of a source set. Every
+     * source file of a source set normally shares the same marker, so callers may remember the
+     * fingerprint by marker.
+     */
+    public static String classpathFingerprint(JavaSourceSet sourceSet) {
+        MessageDigest digest = CacheFiles.sha256();
+        if (sourceSet.getGavToTypes() != null) {
+            for (String gav : new TreeSet<>(sourceSet.getGavToTypes().keySet())) {
+                digest.update(gav.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+        }
+        for (JavaType.FullyQualified type : sourceSet.getClasspath()) {
+            digest.update(type.getFullyQualifiedName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return CacheFiles.hex(digest.digest());
+    }
+
+    /**
+     * @return The cached rows, or {@code null} if there is no entry for the key or the entry was
+     * produced from a source file with a different fingerprint.
+     */
+    public @Nullable SourceFileRows read(String key, String fingerprint) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry(key))))) {
+            if (in.readInt() != VERSION || !key.equals(readString(in)) || !fingerprint.equals(readString(in))) {
+                return null;
+            }
+            SourceFileRows rows = new SourceFileRows();
+            for (int i = in.readInt(); i > 0; i--) {
+                rows.getCallGraph().add(new CallGraph.Row(
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        CallGraph.ResourceType.valueOf(readString(in)),
+                        CallGraph.ResourceAction.valueOf(readString(in)),
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        CallGraph.ResourceType.valueOf(readString(in)),
+                        readString(in)));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                rows.getFactoryEdges().add(new FactoryEdges.Row(readString(in), readString(in), readString(in)));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                rows.getLowConfidenceFiles().add(new LowConfidenceFiles.Row(readString(in), readString(in)));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                rows.getCallSiteCounts().add(new CallSiteCounts.Row(
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        readString(in),
+                        in.readInt()));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                rows.getClassCallGraph().add(new ClassCallGraph.Row(
+                        readString(in),
+                        readString(in),
+                        CallGraph.ResourceAction.valueOf(readString(in)),
+                        readString(in)));
+            }
+            return rows;
+        } catch (NoSuchFileException | EOFException e) {
+            // Not cached yet, or an entry that was never completely written
+            return null;
+        }
+    }
+
+    public void write(String key, String fingerprint, SourceFileRows rows) throws IOException {
+        CacheFiles.write(directory, entry(key), out -> {
+            out.writeInt(VERSION);
+            writeString(out, key);
+            writeString(out, fingerprint);
+            out.writeInt(rows.getCallGraph().size());
+            for (CallGraph.Row row : rows.getCallGraph()) {
+                writeString(out, row.getFromSourceSet());
+                writeString(out, row.getFromClass());
+                writeString(out, row.getFromName());
+                writeString(out, row.getFromArguments());
+                writeString(out, row.getFromType().name());
+                writeString(out, row.getAction().name());
+                writeString(out, row.getToClass());
+                writeString(out, row.getToName());
+                writeString(out, row.getToArguments());
+                writeString(out, row.getToType().name());
+                writeString(out, row.getReturnType());
+            }
+            out.writeInt(rows.getFactoryEdges().size());
+            for (FactoryEdges.Row row : rows.getFactoryEdges()) {
+                writeString(out, row.getFromClass());
+                writeString(out, row.getFromName());
+                writeString(out, row.getToClass());
+            }
+            out.writeInt(rows.getLowConfidenceFiles().size());
+            for (LowConfidenceFiles.Row row : rows.getLowConfidenceFiles()) {
+                writeString(out, row.getSourcePath());
+                writeString(out, row.getReason());
+            }
+            out.writeInt(rows.getCallSiteCounts().size());
+            for (CallSiteCounts.Row row : rows.getCallSiteCounts()) {
+                writeString(out, row.getFromSourceSet());
+                writeString(out, row.getFromClass());
+                writeString(out, row.getFromName());
+                writeString(out, row.getFromArguments());
+                writeString(out, row.getToClass());
+                writeString(out, row.getToName());
+                writeString(out, row.getToArguments());
+                out.writeInt(row.getCallSites());
+            }
+            out.writeInt(rows.getClassCallGraph().size());
+            for (ClassCallGraph.Row row : rows.getClassCallGraph()) {
+                writeString(out, row.getFromSourceSet());
+                writeString(out, row.getFromClass());
+                writeString(out, row.getAction().name());
+                writeString(out, row.getToClass());
+            }
+        });
+    }
+
+    private Path entry(String key) {
+        return CacheFiles.entry(directory, key);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.callgraph;
+
+import lombok.Value;
+import org.openrewrite.table.CallGraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A read-only view over a call graph file written by {@link CallGraphFileWriter}. The file is
+ * memory-mapped and nothing is decoded up front: node lookups and neighbor iteration read
+ * directly from the mapped bytes.
+ * <p>
+ * Layout, with all integers big-endian:
+ * <pre>
+ * header          magic, version, string count, node count, action count
+ * string offsets  (string count + 1) ints, relative to the start of the string data
+ * string data     UTF-8 bytes of every string, back to back
+ * nodes           node count records of (class, name, arguments) string ids and resource type ordinal
+ * adjacency index per action, (node count + 1) ints, relative to the start of the adjacency data
+ * adjacency data  per action and node, sorted neighbor ids as unsigned varint deltas
+ * </pre>
+ * Nodes are sorted by class, name, arguments, and resource type, so {@link #findNode} is a binary search.
+ */
+public class CallGraphFile {
+    static final int MAGIC = 0x52574347; // "RWCG"
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+    private static final int NODE_BYTES = 4 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int nodeCount;
+    private final int actionCount;
+    private final int stringOffsetsStart;
+    private final int stringDataStart;
+    private final int nodesStart;
+    private final int adjacencyIndexStart;
+    private final int adjacencyDataStart;
+
+    CallGraphFile(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a call graph file");
+        }
+        if (buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IllegalArgumentException("Unsupported call graph file version " + buffer.getInt(Integer.BYTES));
+        }
+        int stringCount = buffer.getInt(2 * Integer.BYTES);
+        this.nodeCount = buffer.getInt(3 * Integer.BYTES);
+        this.actionCount = buffer.getInt(4 * Integer.BYTES);
+        this.stringOffsetsStart = HEADER_BYTES;
+        this.stringDataStart = stringOffsetsStart + (stringCount + 1) * Integer.BYTES;
+        this.nodesStart = stringDataStart + buffer.getInt(stringOffsetsStart + stringCount * Integer.BYTES);
+        this.adjacencyIndexStart = nodesStart + nodeCount * NODE_BYTES;
+        this.adjacencyDataStart = adjacencyIndexStart + actionCount * (nodeCount + 1) * Integer.BYTES;
+    }
+
+    public static CallGraphFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new CallGraphFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public Node getNode(int id) {
+        checkNode(id);
+        int record = nodesStart + id * NODE_BYTES;
+        return new Node(id,
+                string(buffer.getInt(record)),
+                string(buffer.getInt(record + Integer.BYTES)),
+                string(buffer.getInt(record + 2 * Integer.BYTES)),
+                CallGraph.ResourceType.values()[buffer.getInt(record + 3 * Integer.BYTES)]);
+    }
+
+    /**
+     * @return The id of the node, or {@code -1} if the graph contains no such node.
+     */
+    public int findNode(String className, String name, String arguments, CallGraph.ResourceType type) {
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int record = nodesStart + mid * NODE_BYTES;
+            int c = string(buffer.getInt(record)).compareTo(className);
+            if (c == 0) {
+                c = string(buffer.getInt(record + Integer.BYTES)).compareTo(name);
+            }
+            if (c == 0) {
+                c = string(buffer.getInt(record + 2 * Integer.BYTES)).compareTo(arguments);
+            }
+            if (c == 0) {
+                c = Integer.compare(buffer.getInt(record + 3 * Integer.BYTES), type.ordinal());
+            }
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Visit the ids of the nodes that {@code id} has an edge to for the given action, in ascending order.
+     */
+    public void forEachNeighbor(int id, CallGraph.ResourceAction action, IntConsumer consumer) {
+        checkNode(id);
+        if (action.ordinal() >= actionCount) {
+            return;
+        }
+        int index = adjacencyIndexStart + (action.ordinal() * (nodeCount + 1) + id) * Integer.BYTES;
+        int position = adjacencyDataStart + buffer.getInt(index);
+        int end = adjacencyDataStart + buffer.getInt(index + Integer.BYTES);
+        int neighbor = 0;
+        boolean first = true;
+        while (position < end) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            neighbor = first ? value : neighbor + value;
+            first = false;
+            consumer.accept(neighbor);
+        }
+    }
+
+    public int[] neighbors(int id, CallGraph.ResourceAction action) {
+        IntStream.Builder neighbors = IntStream.builder();
+        forEachNeighbor(id, action, neighbors);
+        return neighbors.build().toArray();
+    }
+
+    private String string(int id) {
+        int offset = buffer.getInt(stringOffsetsStart + id * Integer.BYTES);
+        int length = buffer.getInt(stringOffsetsStart + (id + 1) * Integer.BYTES) - offset;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(stringDataStart + offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void checkNode(int id) {
+        if (id < 0 || id >= nodeCount) {
+            throw new IndexOutOfBoundsException("Node " + id + " is not in a graph of " + nodeCount + " nodes");
+        }
+    }
+
+    @Value
+    public static class Node {
+        int id;
+        String className;
+        String name;
+        String arguments;
+        CallGraph.ResourceType type;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.callgraph;
+
+import lombok.Value;
+import org.openrewrite.table.CallGraph;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulates {@link CallGraph.Row}s and writes them as a compressed sparse row graph file that
+ * can be loaded with {@link CallGraphFile}.
+ * <p>
+ * Each distinct (class, name, arguments, resource type) in the rows becomes a node. Edges are
+ * deduplicated and grouped by {@link CallGraph.ResourceAction}, and each node's forward
+ * neighbors are stored sorted and delta-encoded as unsigned varints. The source set and return
+ * type columns are not part of the graph.
+ */
+public class CallGraphFileWriter {
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Map<NodeKey, Integer> nodeIds = new HashMap<>();
+    private final List<NodeKey> nodes = new ArrayList<>();
+    private final long[][] edges = new long[CallGraph.ResourceAction.values().length][];
+    private final int[] edgeCounts = new int[CallGraph.ResourceAction.values().length];
+
+    public CallGraphFileWriter() {
+        Arrays.fill(edges, new long[0]);
+    }
+
+    public CallGraphFileWriter add(CallGraph.Row row) {
+        int from = node(row.getFromClass(), row.getFromName(), row.getFromArguments(), row.getFromType());
+        int to = node(row.getToClass(), row.getToName(), row.getToArguments(), row.getToType());
+        int action = row.getAction().ordinal();
+        if (edgeCounts[action] == edges[action].length) {
+            edges[action] = Arrays.copyOf(edges[action], Math.max(16, edges[action].length * 2));
+        }
+        edges[action][edgeCounts[action]++] = ((long) from << 32) | to;
+        return this;
+    }
+
+    public CallGraphFileWriter addAll(Iterable<CallGraph.Row> rows) {
+        for (CallGraph.Row row : rows) {
+            add(row);
+        }
+        return this;
+    }
+
+    public void write(Path path) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(out);
+        }
+    }
+
+    public void write(OutputStream os) throws IOException {
+        // Node ids in the file follow the sort order of the nodes, so a reader can look a node
+        // up by binary search without building an index
+        NodeKey[] sorted = nodes.toArray(new NodeKey[0]);
+        Arrays.sort(sorted, this::compare);
+        int[] fileIds = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            fileIds[nodeIds.get(sorted[i])] = i;
+        }
+
+        byte[][] encodedStrings = new byte[strings.size()][];
+        int stringDataLength = 0;
+        for (int i = 0; i < encodedStrings.length; i++) {
+            encodedStrings[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            stringDataLength += encodedStrings[i].length;
+        }
+
+        CallGraph.ResourceAction[] actions = CallGraph.ResourceAction.values();
+        int[][] adjacencyOffsets = new int[actions.length][];
+        ByteArrayOutputStream adjacency = new ByteArrayOutputStream();
+        for (int a = 0; a < actions.length; a++) {
+            long[] actionEdges = new long[edgeCounts[a]];
+            for (int i = 0; i < actionEdges.length; i++) {
+                long edge = edges[a][i];
+                actionEdges[i] = ((long) fileIds[(int) (edge >>> 32)] << 32) | fileIds[(int) edge];
+            }
+            Arrays.sort(actionEdges);
+
+            int[] offsets = new int[sorted.length + 1];
+            int e = 0;
+            for (int node = 0; node < sorted.length; node++) {
+                offsets[node] = adjacency.size();
+                int previous = 0;
+                boolean first = true;
+                for (; e < actionEdges.length && (int) (actionEdges[e] >>> 32) == node; e++) {
+                    int to = (int) actionEdges[e];
+                    if (!first && to == previous) {
+                        continue;
+                    }
+                    writeVarint(adjacency, first ? to : to - previous);
+                    previous = to;
+                    first = false;
+                }
+            }
+            offsets[sorted.length] = adjacency.size();
+            adjacencyOffsets[a] = offsets;
+        }
+
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(CallGraphFile.MAGIC);
+        out.writeInt(CallGraphFile.VERSION);
+        out.writeInt(encodedStrings.length);
+        out.writeInt(sorted.length);
+        out.writeInt(actions.length);
+
+        int stringOffset = 0;
+        for (byte[] encoded : encodedStrings) {
+            out.writeInt(stringOffset);
+            stringOffset += encoded.length;
+        }
+        out.writeInt(stringDataLength);
+        for (byte[] encoded : encodedStrings) {
+            out.write(encoded);
+        }
+
+        for (NodeKey node : sorted) {
+            out.writeInt(node.getClassId());
+            out.writeInt(node.getNameId());
+            out.writeInt(node.getArgumentsId());
+            out.writeInt(node.getType().ordinal());
+        }
+
+        for (int[] offsets : adjacencyOffsets) {
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+        }
+        adjacency.writeTo(out);
+        out.flush();
+    }
+
+    private int node(String className, String name, String arguments, CallGraph.ResourceType type) {
+        NodeKey key = new NodeKey(string(className), string(name), string(arguments), type);
+        Integer id = nodeIds.get(key);
+        if (id == null) {
+            id = nodes.size();
+            nodes.add(key);
+            nodeIds.put(key, id);
+        }
+        return id;
+    }
+
+    private int string(String s) {
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.add(s);
+            stringIds.put(s, id);
+        }
+        return id;
+    }
+
+    private int compare(NodeKey n1, NodeKey n2) {
+        int c = strings.get(n1.getClassId()).compareTo(strings.get(n2.getClassId()));
+        if (c == 0) {
+            c = strings.get(n1.getNameId()).compareTo(strings.get(n2.getNameId()));
+        }
+        if (c == 0) {
+            c = strings.get(n1.getArgumentsId()).compareTo(strings.get(n2.getArgumentsId()));
+        }
+        if (c == 0) {
+            c = n1.getType().compareTo(n2.getType());
+        }
+        return c;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    @Value
+    private static class NodeKey {
+        int classId;
+        int nameId;
+        int argumentsId;
+        CallGraph.ResourceType type;
+    }
+}
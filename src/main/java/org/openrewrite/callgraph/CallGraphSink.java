@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.callgraph;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.table.CallGraph;
+import org.openrewrite.table.CallGraphNodes;
+
+import java.io.IOException;
+
+/**
+ * Receives {@link CallGraph.Row}s from {@code FindCallGraph} as each source file is finished,
+ * in place of the {@link CallGraph} data table. Rows handed to a sink are not retained by the
+ * recipe, so the memory a run needs for the call graph is bounded by the largest source file
+ * rather than by the whole repository.
+ * <p>
+ * A sink is registered on the {@link ExecutionContext} of the run with {@link #register}. Calls
+ * to a sink are serialized, one source file at a time, so implementations need not be thread
+ * safe. Because rows are handed over synchronously, a sink that can't keep up slows the visit
+ * down rather than letting rows pile up.
+ */
+public interface CallGraphSink {
+
+    /**
+     * Accept a single row.
+     */
+    void accept(CallGraph.Row row) throws IOException;
+
+    /**
+     * Accept a node of the graph, in place of a row of the {@link CallGraphNodes} data table. Each
+     * node is handed over before the first row of a source file that refers to it. Nodes are only
+     * deduplicated within a source file, so that nothing is retained between files, and a node
+     * referred to by several files is handed over once for each of them. Ignored by default, as
+     * every row also carries the class, name, and arguments of both of its nodes.
+     */
+    default void acceptNode(CallGraphNodes.Row node) throws IOException {
+    }
+
+    /**
+     * Called once all the rows of a source file have been accepted.
+     */
+    default void endSourceFile() throws IOException {
+    }
+
+    static void register(ExecutionContext ctx, CallGraphSink sink) {
+        ctx.putMessage(CallGraphSink.class.getName(), sink);
+    }
+
+    static @Nullable CallGraphSink find(ExecutionContext ctx) {
+        return ctx.getMessage(CallGraphSink.class.getName());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.callgraph;
+
+import org.openrewrite.table.CallGraph;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A {@link CallGraphSink} that writes each row as a JSON object on a line of its own, keyed by
+ * the row's column names. Output goes through a fixed-size buffer that is flushed at the end of
+ * every source file.
+ */
+public class NdjsonCallGraphSink implements CallGraphSink, Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+
+    public NdjsonCallGraphSink(Path path) throws IOException {
+        this(Files.newOutputStream(path));
+    }
+
+    public NdjsonCallGraphSink(OutputStream os) {
+        this.out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void accept(CallGraph.Row row) throws IOException {
+        out.write('{');
+        field("fromSourceSet", row.getFromSourceSet());
+        out.write(',');
+        field("fromClass", row.getFromClass());
+        out.write(',');
+        field("fromName", row.getFromName());
+        out.write(',');
+        field("fromArguments", row.getFromArguments());
+        out.write(',');
+        field("fromType", row.getFromType().name());
+        out.write(',');
+        field("action", row.getAction().name());
+        out.write(',');
+        field("toClass", row.getToClass());
+        out.write(',');
+        field("toName", row.getToName());
+        out.write(',');
+        field("toArguments", row.getToArguments());
+        out.write(',');
+        field("toType", row.getToType().name());
+        out.write(',');
+        field("returnType", row.getReturnType());
+        out.write(",\"fromId\":");
+        out.write(Long.toString(row.getFromId()));
+        out.write(",\"toId\":");
+        out.write(Long.toString(row.getToId()));
+        out.write("}\n");
+    }
+
+    @Override
+    public void endSourceFile() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void field(String name, String value) throws IOException {
+        string(name);
+        out.write(':');
+        string(value);
+    }
+
+    private void string(String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
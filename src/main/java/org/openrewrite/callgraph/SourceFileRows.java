@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.callgraph;
+
+import lombok.Value;
+import org.openrewrite.table.CallGraph;
+import org.openrewrite.table.CallSiteCounts;
+import org.openrewrite.table.ClassCallGraph;
+import org.openrewrite.table.FactoryEdges;
+import org.openrewrite.table.LowConfidenceFiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rows {@code FindCallGraph} produced for a single source file.
+ */
+@Value
+public class SourceFileRows {
+    List<CallGraph.Row> callGraph = new ArrayList<>();
+    List<FactoryEdges.Row> factoryEdges = new ArrayList<>();
+    List<LowConfidenceFiles.Row> lowConfidenceFiles = new ArrayList<>();
+    List<CallSiteCounts.Row> callSiteCounts = new ArrayList<>();
+    List<ClassCallGraph.Row> classCallGraph = new ArrayList<>();
+}
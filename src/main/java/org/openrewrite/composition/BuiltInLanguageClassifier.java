@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.composition;
+
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.SourceFile;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Classifies the source files of the language modules this artifact depends on. Tree types are named rather
+ * than referenced, and are matched against the names of the supertypes of the source file class, which are
+ * already loaded. Classifying a source file therefore never loads another language module's classes, and a
+ * language module that is not on the classpath is simply never matched.
+ */
+class BuiltInLanguageClassifier implements LanguageClassifier {
+    /**
+     * Checked in order, so that languages whose trees extend Java's ({@code K}, {@code G}, {@code Py},
+     * {@code Cs}, {@code JS}) are matched before Java.
+     */
+    private static final List<Rule> RULES = Arrays.asList(
+            new Rule("org.openrewrite.quark.Quark", OTHER, false),
+            new Rule("org.openrewrite.binary.Binary", OTHER, false),
+            new Rule("org.openrewrite.remote.Remote", OTHER, false),
+            new Rule("org.openrewrite.cobol.tree.CobolPreprocessor$Copybook", "Copybook", false),
+            // Also CobolPreprocessor, matched by name as there is no common supertype
+            new Rule("org.openrewrite.cobol.tree.Cobol", "Cobol", true),
+            new Rule("org.openrewrite.controlm.tree.ControlM", "Control-M", false),
+            new Rule("org.openrewrite.docker.tree.Docker", "Docker", false),
+            new Rule("org.openrewrite.jcl.tree.Jcl", "JCL", false),
+            new Rule("org.openrewrite.kotlin.tree.K", "Kotlin", false),
+            new Rule("org.openrewrite.groovy.tree.G", "Groovy", false),
+            new Rule("org.openrewrite.python.tree.Py", "Python", false),
+            new Rule("org.openrewrite.csharp.tree.Cs$CompilationUnit", "C#", false),
+            new Rule("org.openrewrite.javascript.tree.JS", "JavaScript", false),
+            new Rule("org.openrewrite.java.tree.J", "Java", false),
+            new Rule("org.openrewrite.json.tree.Json", "Json", false),
+            new Rule("org.openrewrite.hcl.tree.Hcl", "Hcl", false),
+            new Rule("org.openrewrite.properties.tree.Properties", "Properties", false),
+            new Rule("org.openrewrite.protobuf.tree.Proto", "Protobuf", false),
+            new Rule("org.openrewrite.toml.tree.Toml", "Toml", false),
+            new Rule("org.openrewrite.xml.tree.Xml", "Xml", false),
+            new Rule("org.openrewrite.yaml.tree.Yaml", "Yaml", false),
+            new Rule("org.openrewrite.text.PlainText", "Plain text", false),
+            new Rule("org.openrewrite.tree.ParseError", "Parse error", false)
+    );
+
+    @Override
+    public @Nullable String language(Class<? extends SourceFile> sourceFileType) {
+        Set<String> supertypes = new HashSet<>();
+        collectSupertypes(sourceFileType, supertypes);
+        for (Rule rule : RULES) {
+            if (rule.matches(sourceFileType, supertypes)) {
+                return rule.getLanguage();
+            }
+        }
+        return null;
+    }
+
+    private static void collectSupertypes(@Nullable Class<?> type, Set<String> supertypes) {
+        if (type == null || !supertypes.add(type.getName())) {
+            return;
+        }
+        collectSupertypes(type.getSuperclass(), supertypes);
+        for (Class<?> anInterface : type.getInterfaces()) {
+            collectSupertypes(anInterface, supertypes);
+        }
+    }
+
+    @Value
+    private static class Rule {
+        String typeName;
+        String language;
+
+        /**
+         * Whether the type name is a prefix of the source file class name, rather than a supertype.
+         */
+        boolean namePrefix;
+
+        boolean matches(Class<?> sourceFileType, Set<String> supertypes) {
+            return namePrefix ? sourceFileType.getName().startsWith(typeName) : supertypes.contains(typeName);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.composition;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.SourceFile;
+
+/**
+ * Names the language of a type of source file for {@code LanguageComposition}. Language modules can provide
+ * classifiers of their own through {@link java.util.ServiceLoader}, which are consulted before the built-in
+ * classification. Since a classifier is asked once per source file class, it may be as slow as it needs to be.
+ */
+public interface LanguageClassifier {
+
+    /**
+     * Source files that are counted but not reported as any particular language.
+     */
+    String OTHER = "Other/unknown/unparseable";
+
+    /**
+     * @return The language of source files of the given type, or {@code null} if this classifier does not
+     * recognize the type.
+     */
+    @Nullable
+    String language(Class<? extends SourceFile> sourceFileType);
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.composition;
+
+import org.openrewrite.SourceFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Classifies source files by language, remembering the language of each source file class so that
+ * classifying a file is a single lookup. Classifiers registered through {@link ServiceLoader} are asked
+ * first, in the order they are found, and the built-in classification last.
+ */
+public final class LanguageClassifiers {
+    private static final List<LanguageClassifier> CLASSIFIERS = load();
+
+    private static final ClassValue<String> LANGUAGES = new ClassValue<String>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected String computeValue(Class<?> type) {
+            for (LanguageClassifier classifier : CLASSIFIERS) {
+                String language = classifier.language((Class<? extends SourceFile>) type);
+                if (language != null) {
+                    return language;
+                }
+            }
+            return "Unknown";
+        }
+    };
+
+    private LanguageClassifiers() {
+    }
+
+    public static String language(Class<? extends SourceFile> sourceFileType) {
+        return LANGUAGES.get(sourceFileType);
+    }
+
+    private static List<LanguageClassifier> load() {
+        List<LanguageClassifier> classifiers = new ArrayList<>();
+        Iterator<LanguageClassifier> providers = ServiceLoader.load(LanguageClassifier.class,
+                LanguageClassifier.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!providers.hasNext()) {
+                    break;
+                }
+                classifiers.add(providers.next());
+            } catch (ServiceConfigurationError e) {
+                // A provider whose module is only partially on the classpath is skipped
+            }
+        }
+        classifiers.add(new BuiltInLanguageClassifier());
+        return Collections.unmodifiableList(classifiers);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.composition;
+
+import lombok.Value;
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.cache.CacheFiles;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * A directory of {@code LanguageComposition} results, one file per source path. Each entry records the
+ * checksum of the source file it was produced from, and is only returned while that checksum still matches,
+ * so source files without a checksum are never cached (see {@link CacheFiles}).
+ */
+public class LanguageCompositionCache {
+    private static final int VERSION = 1;
+
+    private final Path directory;
+
+    public LanguageCompositionCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return The cached entry, or {@code null} if there is no entry for the source path or the entry was
+     * produced from a source file with a different fingerprint.
+     */
+    public @Nullable Entry read(String sourcePath, String fingerprint) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry(sourcePath))))) {
+            if (in.readInt() != VERSION || !sourcePath.equals(in.readUTF()) || !fingerprint.equals(in.readUTF())) {
+                return null;
+            }
+            return new Entry(in.readUTF(), in.readInt(), in.readInt(), in.readBoolean());
+        } catch (NoSuchFileException | EOFException e) {
+            // Not cached yet, or an entry that was never completely written
+            return null;
+        }
+    }
+
+    public void write(String sourcePath, String fingerprint, Entry entry) throws IOException {
+        CacheFiles.write(directory, entry(sourcePath), out -> {
+            out.writeInt(VERSION);
+            out.writeUTF(sourcePath);
+            out.writeUTF(fingerprint);
+            out.writeUTF(entry.getLanguage());
+            out.writeInt(entry.getLinesOfText());
+            out.writeInt(entry.getLineCount());
+            out.writeBoolean(entry.isHasParseFailure());
+        });
+    }
+
+    private Path entry(String sourcePath) {
+        return CacheFiles.entry(directory, sourcePath);
+    }
+
+    /**
+     * What {@code LanguageComposition} found for a source file.
+     */
+    @Value
+    public static class Entry {
+        String language;
+        int linesOfText;
+
+        /**
+         * The lines attributed to the language in the per-folder and per-repository reports.
+         */
+        int lineCount;
+
+        boolean hasParseFailure;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.composition;
+
+import lombok.Value;
+import lombok.With;
+import org.openrewrite.SourceFile;
+import org.openrewrite.marker.Marker;
+
+import java.util.UUID;
+
+import static org.openrewrite.Tree.randomId;
+
+/**
+ * The number of lines of text in a source file, recorded when it was parsed. {@code LanguageComposition}
+ * reports this count rather than printing the LST to count lines, which for some languages means a round
+ * trip over RPC. The marker describes the source as parsed, so it should be added by the parser's caller
+ * and not be carried over to a source file that a recipe has changed.
+ */
+@Value
+@With
+public class LineCount implements Marker {
+    UUID id;
+    int linesOfText;
+
+    /**
+     * Mark a source file with the number of lines in the text it was parsed from.
+     */
+    public static <S extends SourceFile> S mark(S sourceFile, CharSequence sourceText) {
+        return sourceFile.withMarkers(sourceFile.getMarkers().setByType(new LineCount(randomId(), count(sourceText))));
+    }
+
+    /**
+     * The number of lines in some text, counting a final line that isn't terminated by a line break.
+     */
+    public static int count(CharSequence text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return text.length() > 0 && text.charAt(text.length() - 1) != '\n' ? count + 1 : count;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.composition;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A mergeable histogram of the number of lines in each of a set of files, from which percentiles can be read
+ * without keeping a count per file. Counts below {@value #EXACT_LIMIT} are held exactly. Larger counts are
+ * grouped in buckets that split each power of two into {@value #SUB_BUCKETS} parts, so a percentile is
+ * reported within about 3% of the true value.
+ * <p>
+ * The bucket array only grows as far as the largest count seen, so the histogram of a folder of small files
+ * is small. Files may be added from several threads at once.
+ */
+public class LineCountHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_LIMIT = 2 * SUB_BUCKETS;
+    private static final int EXACT_BITS = SUB_BUCKET_BITS + 1;
+
+    private long[] buckets = new long[0];
+    private long count;
+    private int max;
+
+    public synchronized void add(int lines) {
+        if (lines < 0) {
+            throw new IllegalArgumentException("A file can't have " + lines + " lines");
+        }
+        increment(bucket(lines), 1);
+        count++;
+        max = Math.max(max, lines);
+    }
+
+    /**
+     * Add the files of another histogram to this one. Buckets are counts, so the result does not depend on
+     * the order in which histograms are merged.
+     */
+    public LineCountHistogram merge(LineCountHistogram other) {
+        long[] otherBuckets;
+        long otherCount;
+        int otherMax;
+        synchronized (other) {
+            otherBuckets = other.buckets.clone();
+            otherCount = other.count;
+            otherMax = other.max;
+        }
+        synchronized (this) {
+            for (int i = 0; i < otherBuckets.length; i++) {
+                if (otherBuckets[i] != 0) {
+                    increment(i, otherBuckets[i]);
+                }
+            }
+            count += otherCount;
+            max = Math.max(max, otherMax);
+        }
+        return this;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized int getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile Between 0 and 100.
+     * @return The number of lines that {@code percentile} percent of files are no longer than, or {@code 0}
+     * for a histogram without any files. The largest count in the bucket is reported, so a percentile is never
+     * understated, and never exceeds {@link #getMax()}.
+     */
+    public synchronized int percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Write the histogram compactly, as its count, maximum, and non-empty buckets.
+     */
+    public synchronized void write(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeInt(max);
+        int nonEmpty = 0;
+        for (long bucket : buckets) {
+            if (bucket != 0) {
+                nonEmpty++;
+            }
+        }
+        out.writeInt(nonEmpty);
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i] != 0) {
+                out.writeInt(i);
+                out.writeLong(buckets[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a histogram written by {@link #write(DataOutput)}.
+     */
+    public static LineCountHistogram read(DataInput in) throws IOException {
+        LineCountHistogram histogram = new LineCountHistogram();
+        histogram.count = in.readLong();
+        histogram.max = in.readInt();
+        for (int i = in.readInt(); i > 0; i--) {
+            histogram.increment(in.readInt(), in.readLong());
+        }
+        return histogram;
+    }
+
+    private void increment(int bucket, long n) {
+        if (bucket >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, bucket + 1);
+        }
+        buckets[bucket] += n;
+    }
+
+    static int bucket(int lines) {
+        if (lines < EXACT_LIMIT) {
+            return lines;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(lines);
+        int subBucket = (lines >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return EXACT_LIMIT + (exponent - EXACT_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static int highestValue(int bucket) {
+        if (bucket < EXACT_LIMIT) {
+            return bucket;
+        }
+        int exponent = (bucket - EXACT_LIMIT) / SUB_BUCKETS + EXACT_BITS;
+        int subBucket = (bucket - EXACT_LIMIT) % SUB_BUCKETS;
+        long lowest = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return (int) Math.min(Integer.MAX_VALUE, lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1);
+    }
+}
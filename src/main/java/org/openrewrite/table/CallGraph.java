@@ -16,12 +16,18 @@
 package org.openrewrite.table;
 
 
+import lombok.AllArgsConstructor;
 import lombok.Value;
 import org.openrewrite.Column;
 import org.openrewrite.DataTable;
+import org.openrewrite.ExecutionContext;
 import org.openrewrite.Recipe;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class CallGraph extends DataTable<CallGraph.Row> {
+    private static final String SYMBOL_TABLE = "org.openrewrite.table.CallGraph.SYMBOL_TABLE";
 
     public CallGraph(Recipe recipe) {
         super(recipe,
@@ -29,7 +35,57 @@ public class CallGraph extends DataTable<CallGraph.Row> {
                 "Records method callers and the methods they invoke.");
     }
 
+    /**
+     * The same class names, method names and signatures recur across a very large number of
+     * edges. Rows are canonicalized through a per-run {@link SymbolTable} before they are
+     * stored, so each distinct string is held on the heap once no matter how many rows refer
+     * to it.
+     */
+    @Override
+    public void insertRow(ExecutionContext ctx, Row row) {
+        super.insertRow(ctx, ctx.computeMessageIfAbsent(SYMBOL_TABLE, k -> new SymbolTable()).intern(row));
+    }
+
+    /**
+     * A stable 64-bit id for a node of the graph, the same in every run and repository that
+     * sees the same class, name, and arguments. Type arguments are erased from the arguments,
+     * so that a method is identified by its erased parameter descriptor.
+     */
+    public static long nodeId(String className, String name, String arguments) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv1a(hash, className);
+        hash = (hash ^ '#') * 0x100000001b3L;
+        hash = fnv1a(hash, name);
+        hash = (hash ^ '(') * 0x100000001b3L;
+        int depth = 0;
+        for (int i = 0; i < arguments.length(); i++) {
+            char c = arguments.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (depth == 0) {
+                hash = (hash ^ c) * 0x100000001b3L;
+            }
+        }
+        // FNV-1a alone distributes poorly in the high bits, so finish with MurmurHash3's mixer
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long fnv1a(long hash, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            hash = (hash ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
     @Value
+    @AllArgsConstructor
     public static class Row {
 
         @Column(displayName = "From source set",
@@ -77,6 +133,61 @@ public class CallGraph extends DataTable<CallGraph.Row> {
         @Column(displayName = "Return type",
                 description = "The return type of the method.")
         String returnType;
+
+        @Column(displayName = "From id",
+                description = "The stable id of the method or scope from which the action is issued, " +
+                              "as computed by `CallGraph.nodeId` from its class, name, and arguments.")
+        long fromId;
+
+        @Column(displayName = "To id",
+                description = "The stable id of the resource being accessed, " +
+                              "as computed by `CallGraph.nodeId` from its class, name, and arguments.")
+        long toId;
+
+        public Row(String fromSourceSet, String fromClass, String fromName, String fromArguments,
+                   ResourceType fromType, ResourceAction action, String toClass, String toName,
+                   String toArguments, ResourceType toType, String returnType) {
+            this(fromSourceSet, fromClass, fromName, fromArguments, fromType, action, toClass, toName,
+                    toArguments, toType, returnType,
+                    nodeId(fromClass, fromName, fromArguments),
+                    nodeId(toClass, toName, toArguments));
+        }
+    }
+
+    /**
+     * The canonical copy of every string that has appeared in a row during the current run.
+     * Rows may be inserted from several threads, so the copies are held in a concurrent map.
+     */
+    static class SymbolTable {
+        private final Map<String, String> symbols = new ConcurrentHashMap<>();
+
+        String intern(String symbol) {
+            return symbols.computeIfAbsent(symbol, k -> k);
+        }
+
+        /**
+         * @return The row itself if all of its strings are already the canonical copies, which is
+         * the common case for rows built from memoized signatures, and otherwise a copy that refers
+         * to the canonical copies.
+         */
+        Row intern(Row row) {
+            String fromSourceSet = intern(row.getFromSourceSet());
+            String fromClass = intern(row.getFromClass());
+            String fromName = intern(row.getFromName());
+            String fromArguments = intern(row.getFromArguments());
+            String toClass = intern(row.getToClass());
+            String toName = intern(row.getToName());
+            String toArguments = intern(row.getToArguments());
+            String returnType = intern(row.getReturnType());
+            if (fromSourceSet == row.getFromSourceSet() && fromClass == row.getFromClass() &&
+                fromName == row.getFromName() && fromArguments == row.getFromArguments() &&
+                toClass == row.getToClass() && toName == row.getToName() &&
+                toArguments == row.getToArguments() && returnType == row.getReturnType()) {
+                return row;
+            }
+            return new Row(fromSourceSet, fromClass, fromName, fromArguments, row.getFromType(), row.getAction(),
+                    toClass, toName, toArguments, row.getToType(), returnType, row.getFromId(), row.getToId());
+        }
     }
 
     public enum ResourceType {
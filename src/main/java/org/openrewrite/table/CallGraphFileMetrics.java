@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.table;
+
+import lombok.Value;
+import org.openrewrite.Column;
+import org.openrewrite.DataTable;
+import org.openrewrite.Recipe;
+
+/**
+ * How much work {@code FindCallGraph} did for each source file, to find the files that
+ * dominate a slow run. Files replayed from the cache are not visited and have no row.
+ */
+public class CallGraphFileMetrics extends DataTable<CallGraphFileMetrics.Row> {
+
+    public CallGraphFileMetrics(Recipe recipe) {
+        super(recipe,
+                "Call graph file metrics",
+                "The time spent and the volume of edges produced extracting the call graph of each source file.");
+    }
+
+    @Value
+    public static class Row {
+        @Column(displayName = "Source path",
+                description = "The path of the source file.")
+        String sourcePath;
+
+        @Column(displayName = "Visit time (ns)",
+                description = "The wall-clock time spent visiting the source file, in nanoseconds.")
+        long visitNanos;
+
+        @Column(displayName = "Nodes visited",
+                description = "The number of LST elements visited.")
+        int nodesVisited;
+
+        @Column(displayName = "Call edges",
+                description = "The number of call edges emitted.")
+        int callEdges;
+
+        @Column(displayName = "Reference edges",
+                description = "The number of type reference edges emitted.")
+        int referenceEdges;
+
+        @Column(displayName = "Standard library edges dropped",
+                description = "The number of calls and type references to the standard library that were " +
+                              "dropped because the standard library is excluded.")
+        int stdLibEdgesDropped;
+
+        @Column(displayName = "Low confidence hits",
+                description = "The number of times an edge could not be recorded due to missing type " +
+                              "attribution, including hits for reasons already reported for the file.")
+        int lowConfidenceHits;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.table;
+
+import lombok.Value;
+import org.openrewrite.Column;
+import org.openrewrite.DataTable;
+import org.openrewrite.Recipe;
+
+/**
+ * Dictionary of the nodes referred to by {@link CallGraph.Row#getFromId()} and
+ * {@link CallGraph.Row#getToId()}, with one row per node per run.
+ */
+public class CallGraphNodes extends DataTable<CallGraphNodes.Row> {
+
+    public CallGraphNodes(Recipe recipe) {
+        super(recipe,
+                "Call graph nodes",
+                "The methods, scopes, and classes that the ids in the method call graph stand for.");
+    }
+
+    @Value
+    public static class Row {
+        @Column(displayName = "Id",
+                description = "The stable id of the node.")
+        long id;
+
+        @Column(displayName = "Class",
+                description = "The fully qualified name of the class.")
+        String className;
+
+        @Column(displayName = "Name",
+                description = "The name of the method or scope, or empty for a class.")
+        String name;
+
+        @Column(displayName = "Arguments",
+                description = "The argument types, if any, to the method or scope. " +
+                              "Expressed as a comma-separated list")
+        String arguments;
+
+        @Column(displayName = "Type",
+                description = "The type of resource.")
+        CallGraph.ResourceType type;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.table;
+
+import lombok.Value;
+import org.openrewrite.Column;
+import org.openrewrite.DataTable;
+import org.openrewrite.Recipe;
+
+/**
+ * The number of call sites behind each {@link CallGraph} call edge. {@link CallGraph} reports an
+ * edge once per calling scope however many times the scope makes the call; this table carries
+ * the multiplicity so that edges can be weighted, e.g. to rank hot paths.
+ */
+public class CallSiteCounts extends DataTable<CallSiteCounts.Row> {
+
+    public CallSiteCounts(Recipe recipe) {
+        super(recipe,
+                "Call site counts",
+                "The number of call sites in a calling scope for each method call edge.");
+    }
+
+    @Value
+    public static class Row {
+        @Column(displayName = "From source set",
+                description = "The source set from which the call is issued.")
+        String fromSourceSet;
+
+        @Column(displayName = "From class",
+                description = "The fully qualified name of the class from which the call is issued.")
+        String fromClass;
+
+        @Column(displayName = "From name",
+                description = "The name of the method or scope from which the call is issued.")
+        String fromName;
+
+        @Column(displayName = "From arguments",
+                description = "The argument types, if any, to the method or scope from which the call is issued. " +
+                              "Expressed as a comma-separated list")
+        String fromArguments;
+
+        @Column(displayName = "To class",
+                description = "The fully-qualified name of the class containing the method being called.")
+        String toClass;
+
+        @Column(displayName = "To name",
+                description = "The name of the method being called.")
+        String toName;
+
+        @Column(displayName = "To arguments",
+                description = "The argument types, if any, to the method being called. " +
+                              "Expressed as a comma-separated list")
+        String toArguments;
+
+        @Column(displayName = "Call sites",
+                description = "The number of places in the calling scope that make the call.")
+        int callSites;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.table;
+
+import lombok.Value;
+import org.openrewrite.Column;
+import org.openrewrite.DataTable;
+import org.openrewrite.Recipe;
+
+/**
+ * {@link CallGraph} collapsed to the classes on either end of each edge, emitted by
+ * {@code FindCallGraph} in place of {@link CallGraph} when run at class granularity. Each
+ * (from class, action, to class) is reported once per source file.
+ */
+public class ClassCallGraph extends DataTable<ClassCallGraph.Row> {
+
+    public ClassCallGraph(Recipe recipe) {
+        super(recipe,
+                "Class call graph",
+                "Records the classes that call or reference other classes.");
+    }
+
+    @Value
+    public static class Row {
+        @Column(displayName = "From source set",
+                description = "The source set from which the action is issued.")
+        String fromSourceSet;
+
+        @Column(displayName = "From class",
+                description = "The fully qualified name of the class from which the action is issued.")
+        String fromClass;
+
+        @Column(displayName = "Action",
+                description = "The type of access being made to the class.")
+        CallGraph.ResourceAction action;
+
+        @Column(displayName = "To class",
+                description = "The fully-qualified name of the class being accessed.")
+        String toClass;
+    }
+}
@@ -49,5 +49,10 @@ public class LanguageCompositionPerFile extends DataTable<LanguageCompositionPer
         @Column(displayName = "Has parse failures",
                 description = "True if the file failed to parse, otherwise false.")
         Boolean hasParseFailures;
+
+        @Column(displayName = "Lines of text estimated",
+                description = "True if the file exceeded the size or time budget for counting its lines, and its " +
+                        "lines of text were estimated from those counted within the budget.")
+        Boolean linesOfTextEstimated;
     }
 }
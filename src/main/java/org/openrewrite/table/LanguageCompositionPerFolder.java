@@ -24,7 +24,8 @@ public class LanguageCompositionPerFolder extends DataTable<LanguageCompositionP
 
     public LanguageCompositionPerFolder(Recipe recipe) {
         super(recipe, "Per-folder language composition report",
-                "A list of folders and the language composition and line counts of their contents.");
+                "A list of folders and the language composition and line counts of their contents, " +
+                "both directly in the folder and in the folder and all of its subfolders.");
     }
 
     @Value
@@ -39,10 +40,18 @@ public class LanguageCompositionPerFolder extends DataTable<LanguageCompositionP
 
         @Column(displayName = "File count",
                 description = "Count of files of this language.")
-        int fileCount;
+        long fileCount;
 
         @Column(displayName = "Line count",
                 description = "Count of lines of this language.")
-        int lineCount;
+        long lineCount;
+
+        @Column(displayName = "Subtree file count",
+                description = "Count of files of this language in the folder and all of its subfolders.")
+        long subtreeFileCount;
+
+        @Column(displayName = "Subtree line count",
+                description = "Count of lines of this language in the folder and all of its subfolders.")
+        long subtreeLineCount;
     }
 }
@@ -38,10 +38,10 @@ public class LanguageCompositionPerRepository extends DataTable<LanguageComposit
 
         @Column(displayName = "File count",
                 description = "Count of files of this language.")
-        int fileCount;
+        long fileCount;
 
         @Column(displayName = "Line count",
                 description = "Count of lines of this language.")
-        int lineCount;
+        long lineCount;
     }
 }
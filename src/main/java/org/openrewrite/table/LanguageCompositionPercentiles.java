@@ -0,0 +1,61 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.table;
+
+import lombok.Value;
+import org.openrewrite.Column;
+import org.openrewrite.DataTable;
+import org.openrewrite.Recipe;
+
+public class LanguageCompositionPercentiles extends DataTable<LanguageCompositionPercentiles.Row> {
+
+    public LanguageCompositionPercentiles(Recipe recipe) {
+        super(recipe, "Lines per file percentiles",
+                "The distribution of lines of text per file of each language in each folder and all of its " +
+                "subfolders. Percentiles are estimated to within about 3% of the true value.");
+    }
+
+    @Value
+    public static class Row {
+        @Column(displayName = "Folder path",
+                description = "The path to the folder relative to repository root.")
+        String folderPath;
+
+        @Column(displayName = "Language",
+                description = "Language of the source file.")
+        String language;
+
+        @Column(displayName = "File count",
+                description = "Count of files of this language in the folder and all of its subfolders.")
+        long fileCount;
+
+        @Column(displayName = "Median lines of text",
+                description = "The number of lines of text that half of the files are no longer than.")
+        int p50;
+
+        @Column(displayName = "90th percentile lines of text",
+                description = "The number of lines of text that 90% of the files are no longer than.")
+        int p90;
+
+        @Column(displayName = "99th percentile lines of text",
+                description = "The number of lines of text that 99% of the files are no longer than.")
+        int p99;
+
+        @Column(displayName = "Maximum lines of text",
+                description = "The number of lines of text in the longest file.")
+        int max;
+    }
+}
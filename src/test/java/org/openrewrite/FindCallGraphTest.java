@@ -15,12 +15,39 @@
  */
 package org.openrewrite;
 
+import org.jspecify.annotations.Nullable;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.callgraph.CallGraphFile;
+import org.openrewrite.callgraph.CallGraphSink;
+import org.openrewrite.callgraph.NdjsonCallGraphSink;
+import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.java.marker.JavaSourceSet;
+import org.openrewrite.java.tree.JavaType;
 import org.openrewrite.table.CallGraph;
+import org.openrewrite.table.CallGraphFileMetrics;
+import org.openrewrite.table.CallGraphNodes;
+import org.openrewrite.table.CallSiteCounts;
+import org.openrewrite.table.ClassCallGraph;
 import org.openrewrite.test.RecipeSpec;
 import org.openrewrite.test.RewriteTest;
 import org.openrewrite.test.TypeValidation;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.openrewrite.java.Assertions.*;
 import static org.openrewrite.kotlin.Assertions.kotlin;
@@ -30,7 +57,7 @@ class FindCallGraphTest implements RewriteTest {
 
     @Override
     public void defaults(RecipeSpec spec) {
-        spec.recipe(new FindCallGraph(true));
+        spec.recipe(new FindCallGraph(true, null, null, null, null, null));
     }
 
     @DocumentExample
@@ -107,11 +134,478 @@ class FindCallGraphTest implements RewriteTest {
         );
     }
 
+    @Test
+    void rowsShareInternedStrings(@TempDir Path cacheDirectory) {
+        //language=java
+        List<SourceFile> sources = JavaParser.fromJavaVersion().build().parse(
+          """
+            class Helper {
+                static void help(String s) {}
+            }
+            """,
+          """
+            class A {
+                void a() {
+                    Helper.help("a");
+                }
+            }
+            """,
+          """
+            class B {
+                void b() {
+                    Helper.help("b");
+                }
+            }
+            """
+        ).map(s -> s.withChecksum(new Checksum("SHA-256", s.getSourcePath().toString().getBytes(StandardCharsets.UTF_8)))).toList();
+        FindCallGraph recipe = new FindCallGraph(true, cacheDirectory.toString(), null, null, null, null);
+        recipe.run(new InMemoryLargeSourceSet(sources), new InMemoryExecutionContext());
+
+        // Rows replayed from the cache are read back with fresh copies of every string, so any
+        // sharing between the rows of different files is down to the symbol table
+        List<CallGraph.Row> rows = recipe.run(new InMemoryLargeSourceSet(sources), new InMemoryExecutionContext())
+          .getDataTableRows(CallGraph.class).stream()
+          .filter(row -> "help".equals(row.getToName()))
+          .toList();
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).getFromClass()).isNotEqualTo(rows.get(1).getFromClass());
+        assertThat(rows.get(0).getToClass()).isSameAs(rows.get(1).getToClass());
+        assertThat(rows.get(0).getToArguments()).isSameAs(rows.get(1).getToArguments());
+        assertThat(rows.get(0).getReturnType()).isSameAs(rows.get(1).getReturnType());
+    }
+
+    @Test
+    void replayFromCache(@TempDir Path cacheDirectory) throws IOException {
+        //language=java
+        List<SourceFile> sources = JavaParser.fromJavaVersion().build().parse(
+          """
+            class Test {
+                void test() {
+                    System.out.println("Hello");
+                }
+            }
+            """
+        ).map(s -> s.withChecksum(new Checksum("SHA-256", new byte[]{1, 2, 3}))).toList();
+        FindCallGraph recipe = new FindCallGraph(true, cacheDirectory.toString(), null, null, null, null);
+
+        List<CallGraph.Row> visited = recipe.run(new InMemoryLargeSourceSet(sources), new InMemoryExecutionContext())
+          .getDataTableRows(CallGraph.class);
+        try (Stream<Path> entries = Files.list(cacheDirectory)) {
+            assertThat(entries).hasSize(1);
+        }
+
+        List<CallGraph.Row> replayed = recipe.run(new InMemoryLargeSourceSet(sources), new InMemoryExecutionContext())
+          .getDataTableRows(CallGraph.class);
+        assertThat(replayed).isNotEmpty().isEqualTo(visited);
+    }
+
+    @Test
+    void cacheIsKeyedByClasspath(@TempDir Path cacheDirectory) throws IOException {
+        Checksum checksum = new Checksum("SHA-256", new byte[]{1, 2, 3});
+        JavaSourceSet main = JavaSourceSet.build("main", List.of());
+        JavaParser parser = JavaParser.fromJavaVersion().build();
+        //language=java
+        SourceFile callsA = parser.parse(
+          """
+            class Test {
+                void test() {
+                    a();
+                }
+                void a() {}
+                void b() {}
+            }
+            """
+        ).findFirst().orElseThrow();
+        parser.reset();
+        //language=java
+        SourceFile callsB = parser.parse(
+          """
+            class Test {
+                void test() {
+                    b();
+                }
+                void a() {}
+                void b() {}
+            }
+            """
+        ).findFirst().orElseThrow();
+        FindCallGraph recipe = new FindCallGraph(false, cacheDirectory.toString(), null, null, null, null);
+
+        // Without a checksum there is nothing to key the cache by
+        recipe.run(new InMemoryLargeSourceSet(List.of(callsA)), new InMemoryExecutionContext());
+        try (Stream<Path> entries = Files.list(cacheDirectory)) {
+            assertThat(entries).isEmpty();
+        }
+
+        assertThat(callees(recipe, callsA.withChecksum(checksum).withMarkers(callsA.getMarkers().add(main)))).containsExactly("a");
+        // The same checksum and classpath replay the rows of the first run
+        assertThat(callees(recipe, callsB.withChecksum(checksum).withMarkers(callsB.getMarkers().add(main)))).containsExactly("a");
+        // A different classpath can change attribution, so the file is visited again
+        JavaSourceSet changed = main.withClasspath(List.of(JavaType.ShallowClass.build("com.example.Dependency")));
+        assertThat(callees(recipe, callsB.withChecksum(checksum).withMarkers(callsB.getMarkers().add(changed)))).containsExactly("b");
+    }
+
+    private static List<String> callees(FindCallGraph recipe, SourceFile sourceFile) {
+        return recipe.run(new InMemoryLargeSourceSet(List.of(sourceFile)), new InMemoryExecutionContext())
+          .getDataTableRows(CallGraph.class).stream()
+          .map(CallGraph.Row::getToName)
+          .toList();
+    }
+
+    @Test
+    void writeCallGraphFile(@TempDir Path tempDir) throws IOException {
+        //language=java
+        List<SourceFile> sources = JavaParser.fromJavaVersion().build().parse(
+          """
+            class Test {
+                void test() {
+                    other();
+                }
+
+                void other() {
+                }
+            }
+            """
+        ).toList();
+        Path file = tempDir.resolve("call-graph.bin");
+        new FindCallGraph(false, null, null, null, null, file.toString())
+          .run(new InMemoryLargeSourceSet(sources), new InMemoryExecutionContext());
+
+        CallGraphFile graph = CallGraphFile.open(file);
+        int test = graph.findNode("Test", "test", "", CallGraph.ResourceType.METHOD);
+        int other = graph.findNode("Test", "other", "", CallGraph.ResourceType.METHOD);
+        assertThat(graph.neighbors(test, CallGraph.ResourceAction.CALL)).containsExactly(other);
+    }
+
+    @Test
+    void streamToSink() throws IOException {
+        //language=java
+        List<SourceFile> sources = JavaParser.fromJavaVersion().build().parse(
+          """
+            class Test {
+                void test() {
+                    test();
+                }
+            }
+            """
+        ).toList();
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (NdjsonCallGraphSink sink = new NdjsonCallGraphSink(out)) {
+            CallGraphSink.register(ctx, sink);
+            List<CallGraph.Row> rows = new FindCallGraph(false, null, null, null, null, null)
+              .run(new InMemoryLargeSourceSet(sources), ctx)
+              .getDataTableRows(CallGraph.class);
+            assertThat(rows).isEmpty();
+        }
+        long id = CallGraph.nodeId("Test", "test", "");
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+          "{\"fromSourceSet\":\"unknown\",\"fromClass\":\"Test\",\"fromName\":\"test\",\"fromArguments\":\"\"," +
+          "\"fromType\":\"METHOD\",\"action\":\"CALL\",\"toClass\":\"Test\",\"toName\":\"test\"," +
+          "\"toArguments\":\"\",\"toType\":\"METHOD\",\"returnType\":\"void\"," +
+          "\"fromId\":" + id + ",\"toId\":" + id + "}\n");
+    }
+
+    @Test
+    void concurrentVisitsMatchSequentialRun() throws Exception {
+        String[] classes = new String[32];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = """
+              class C%d {
+                  void m(String s) {
+                      helper%d(s);
+                      new C%d().m(s);
+                  }
+                  void helper%d(String s) {}
+              }
+              """.formatted(i, i, Math.max(0, i - 1), i);
+        }
+        List<SourceFile> sources = JavaParser.fromJavaVersion().build().parse(classes).toList();
+        FindCallGraph recipe = new FindCallGraph(false, null, null, null, null, null);
+
+        List<CallGraph.Row> sequential = new ArrayList<>();
+        ExecutionContext sequentialCtx = new InMemoryExecutionContext();
+        CallGraphSink.register(sequentialCtx, sequential::add);
+        recipe.run(new InMemoryLargeSourceSet(sources), sequentialCtx);
+
+        // The sink is not thread safe, so rows would be lost if files were not inserted one at a time
+        List<CallGraph.Row> concurrent = new ArrayList<>();
+        ExecutionContext concurrentCtx = new InMemoryExecutionContext();
+        CallGraphSink.register(concurrentCtx, concurrent::add);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> visits = new ArrayList<>();
+            for (SourceFile source : sources) {
+                visits.add(executor.submit(() -> recipe.getVisitor().visit(source, concurrentCtx)));
+            }
+            for (Future<?> visit : visits) {
+                visit.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Each method calls a helper, and a constructor and a method of another class
+        assertThat(sequential).hasSize(3 * sources.size());
+        assertThat(concurrent).containsExactlyInAnyOrderElementsOf(sequential);
+
+        // Without a sink, rows are inserted into the data tables, which are no more thread safe
+        RecipeRun sequentialRun = recipe.run(new InMemoryLargeSourceSet(sources), new InMemoryExecutionContext());
+        RecipeRun concurrentRun = new ConcurrentFindCallGraph(recipe)
+          .run(new InMemoryLargeSourceSet(sources), new InMemoryExecutionContext());
+        assertThat(concurrentRun.getDataTableRows(CallGraph.class))
+          .hasSize(3 * sources.size())
+          .containsExactlyInAnyOrderElementsOf(sequentialRun.getDataTableRows(CallGraph.class));
+        assertThat(concurrentRun.getDataTableRows(CallGraphNodes.class))
+          .isNotEmpty()
+          .doesNotHaveDuplicates()
+          .containsExactlyInAnyOrderElementsOf(sequentialRun.getDataTableRows(CallGraphNodes.class));
+    }
+
+    /**
+     * Visits the source files of a run on a thread pool, with a visitor per file.
+     */
+    private static class ConcurrentFindCallGraph extends ScanningRecipe<List<SourceFile>> {
+        private final FindCallGraph delegate;
+
+        ConcurrentFindCallGraph(FindCallGraph delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Concurrent call graph";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Call graph of source files visited concurrently.";
+        }
+
+        @Override
+        public List<SourceFile> getInitialValue(ExecutionContext ctx) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getScanner(List<SourceFile> sources) {
+            return new TreeVisitor<>() {
+                @Override
+                public Tree visit(@Nullable Tree tree, ExecutionContext ctx) {
+                    sources.add((SourceFile) tree);
+                    return tree;
+                }
+            };
+        }
+
+        @Override
+        public Collection<? extends SourceFile> generate(List<SourceFile> sources, ExecutionContext ctx) {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> visits = new ArrayList<>();
+                for (SourceFile source : sources) {
+                    visits.add(executor.submit(() -> delegate.getVisitor().visit(source, ctx)));
+                }
+                for (Future<?> visit : visits) {
+                    visit.get();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                executor.shutdown();
+            }
+            return List.of();
+        }
+    }
+
+    @Test
+    void streamNodesToSink() {
+        //language=java
+        List<SourceFile> sources = JavaParser.fromJavaVersion().build().parse(
+          """
+            class Test {
+                void test() {
+                    other();
+                    other();
+                }
+                void other() {
+                }
+            }
+            """
+        ).toList();
+        List<CallGraphNodes.Row> nodes = new ArrayList<>();
+        ExecutionContext ctx = new InMemoryExecutionContext();
+        CallGraphSink.register(ctx, new CallGraphSink() {
+            @Override
+            public void accept(CallGraph.Row row) {
+            }
+
+            @Override
+            public void acceptNode(CallGraphNodes.Row node) {
+                nodes.add(node);
+            }
+        });
+        RecipeRun run = new FindCallGraph(false, null, null, null, null, null)
+          .run(new InMemoryLargeSourceSet(sources), ctx);
+
+        assertThat(run.getDataTableRows(CallGraphNodes.class)).isEmpty();
+        assertThat(nodes).containsExactly(
+          new CallGraphNodes.Row(CallGraph.nodeId("Test", "test", ""), "Test", "test", "", CallGraph.ResourceType.METHOD),
+          new CallGraphNodes.Row(CallGraph.nodeId("Test", "other", ""), "Test", "other", "", CallGraph.ResourceType.METHOD)
+        );
+    }
+
+    @Test
+    void countCallSites() {
+        rewriteRun(
+          spec -> spec
+            .recipe(new FindCallGraph(false, null, true, null, null, null))
+            .dataTable(CallSiteCounts.Row.class, rows ->
+              assertThat(rows).containsExactly(
+                new CallSiteCounts.Row(
+                  "unknown",
+                  "Test",
+                  "test",
+                  "",
+                  "Test",
+                  "greet",
+                  "java.lang.String",
+                  2
+                ),
+                new CallSiteCounts.Row(
+                  "unknown",
+                  "Test",
+                  "greet",
+                  "java.lang.String",
+                  "Test",
+                  "test",
+                  "",
+                  1
+                )
+              )),
+          //language=java
+          java(
+                """
+              class Test {
+                  void test() {
+                      greet("Hello");
+                      greet("World");
+                  }
+                  void greet(String s) {
+                      test();
+                  }
+              }
+              """
+          )
+        );
+    }
+
+    @Test
+    void classGranularity() {
+        rewriteRun(
+          spec -> spec
+            .recipe(new FindCallGraph(false, null, null, "class", null, null))
+            .dataTable(ClassCallGraph.Row.class, rows ->
+              assertThat(rows).containsExactly(
+                new ClassCallGraph.Row("unknown", "Test", CallGraph.ResourceAction.CALL, "Helper"),
+                new ClassCallGraph.Row("unknown", "Test", CallGraph.ResourceAction.REFERENCE, "Helper")
+              )),
+          //language=java
+          java(
+                """
+              class Helper {
+                  static void a() {}
+                  static void b(String s) {}
+              }
+              """
+          ),
+          //language=java
+          java(
+                """
+              class Test {
+                  void test() {
+                      Helper.a();
+                      Helper.b("Hello");
+                  }
+                  Helper other() {
+                      Helper.a();
+                      return null;
+                  }
+              }
+              """
+          )
+        );
+    }
+
+    @Test
+    void nodeIdsIgnoreTypeArguments() {
+        assertThat(CallGraph.nodeId("Test", "test", "java.util.List<java.lang.String>,int"))
+          .isEqualTo(CallGraph.nodeId("Test", "test", "java.util.List,int"))
+          .isNotEqualTo(CallGraph.nodeId("Test", "test", "java.util.List"));
+    }
+
+    @Test
+    void nodeDictionary() {
+        rewriteRun(
+          spec -> spec
+            .recipe(new FindCallGraph(false, null, null, null, null, null))
+            .dataTable(CallGraphNodes.Row.class, rows ->
+              assertThat(rows).containsExactly(
+                new CallGraphNodes.Row(CallGraph.nodeId("Test", "test", ""), "Test", "test", "", CallGraph.ResourceType.METHOD),
+                new CallGraphNodes.Row(CallGraph.nodeId("Test", "other", ""), "Test", "other", "", CallGraph.ResourceType.METHOD)
+              )),
+          //language=java
+          java(
+                """
+              class Test {
+                  void test() {
+                      other();
+                      test();
+                  }
+                  void other() {
+                      test();
+                  }
+              }
+              """
+          )
+        );
+    }
+
+    @Test
+    void fileMetrics() {
+        rewriteRun(
+          spec -> spec
+            .recipe(new FindCallGraph(false, null, null, null, true, null))
+            .dataTable(CallGraphFileMetrics.Row.class, rows -> {
+                assertThat(rows).hasSize(1);
+                CallGraphFileMetrics.Row row = rows.getFirst();
+                assertThat(row.getSourcePath()).isEqualTo("Test.java");
+                assertThat(row.getVisitNanos()).isPositive();
+                assertThat(row.getNodesVisited()).isPositive();
+                assertThat(row.getCallEdges()).isEqualTo(1);
+                assertThat(row.getReferenceEdges()).isZero();
+                assertThat(row.getStdLibEdgesDropped()).isEqualTo(1);
+                assertThat(row.getLowConfidenceHits()).isZero();
+            }),
+          //language=java
+          java(
+                """
+              class Test {
+                  void test() {
+                      System.out.println("Hello");
+                      test();
+                  }
+              }
+              """
+          )
+        );
+    }
+
     @Test
     void filterStdLib() {
         rewriteRun(
           spec -> spec
-            .recipe(new FindCallGraph(false))
+            .recipe(new FindCallGraph(false, null, null, null, null, null))
             .dataTable(CallGraph.Row.class, row ->
               assertThat(row).containsExactly(
                 new CallGraph.Row(
@@ -514,7 +1008,7 @@ class FindCallGraphTest implements RewriteTest {
         // method on the referenced class.
         rewriteRun(
           spec -> spec
-            .recipe(new FindCallGraph(false))
+            .recipe(new FindCallGraph(false, null, null, null, null, null))
             .dataTable(CallGraph.Row.class, row -> {
                 assertThat(row)
                         // Import -> class-level reference from the file to the imported class.
@@ -577,7 +1071,7 @@ class FindCallGraphTest implements RewriteTest {
         // attributed to the enclosing method.
         rewriteRun(
           spec -> spec
-            .recipe(new FindCallGraph(false))
+            .recipe(new FindCallGraph(false, null, null, null, null, null))
             .dataTable(CallGraph.Row.class, row -> {
                 assertThat(row).contains(
                   new CallGraph.Row(
@@ -619,7 +1113,7 @@ class FindCallGraphTest implements RewriteTest {
         // custom validators that take a rule class).
         rewriteRun(
           spec -> spec
-            .recipe(new FindCallGraph(false))
+            .recipe(new FindCallGraph(false, null, null, null, null, null))
             .dataTable(CallGraph.Row.class, row -> {
                 assertThat(row)
                         // Class-level annotation: edge attributed to the class.
@@ -17,11 +17,17 @@ package org.openrewrite;
 
 import org.jspecify.annotations.Nullable;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.cache.SourceChecksum;
+import org.openrewrite.composition.LineCount;
+import org.openrewrite.composition.LineCountHistogram;
 import org.openrewrite.internal.InMemoryLargeSourceSet;
+import org.openrewrite.java.JavaParser;
 import org.openrewrite.java.tree.J;
 import org.openrewrite.java.tree.Space;
 import org.openrewrite.marker.Markers;
 import org.openrewrite.python.tree.Py;
+import org.openrewrite.table.LanguageCompositionPercentiles;
 import org.openrewrite.table.LanguageCompositionPerFile;
 import org.openrewrite.table.LanguageCompositionPerFolder;
 import org.openrewrite.table.LanguageCompositionPerRepository;
@@ -30,13 +36,20 @@ import org.openrewrite.test.RecipeSpec;
 import org.openrewrite.test.RewriteTest;
 import org.openrewrite.test.SourceSpecs;
 import org.openrewrite.text.PlainText;
+import org.openrewrite.text.PlainTextParser;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.openrewrite.PathUtils.separatorsToSystem;
@@ -52,7 +65,7 @@ class LanguageCompositionTest implements RewriteTest {
 
     @Override
     public void defaults(RecipeSpec spec) {
-        spec.recipe(new LanguageComposition());
+        spec.recipe(new LanguageComposition(null, null, null, null, null, null));
     }
 
     @Test
@@ -91,10 +104,12 @@ class LanguageCompositionTest implements RewriteTest {
               });
               spec.dataTable(LanguageCompositionPerFolder.Row.class, table -> {
                   assertThat(table)
-                          .hasSize(2)
+                          .hasSize(7)
                           .contains(
-                    new LanguageCompositionPerFolder.Row(separatorsToSystem("src/java/main/com/whatever"), "Java", 1, 3),
-                    new LanguageCompositionPerFolder.Row("", "Plain text", 2, 4)
+                    new LanguageCompositionPerFolder.Row(separatorsToSystem("src/java/main/com/whatever"), "Java", 1, 3, 1, 3),
+                    new LanguageCompositionPerFolder.Row(separatorsToSystem("src/java"), "Java", 0, 0, 1, 3),
+                    new LanguageCompositionPerFolder.Row("", "Java", 0, 0, 1, 3),
+                    new LanguageCompositionPerFolder.Row("", "Plain text", 2, 4, 2, 4)
                   );
               });
           },
@@ -164,10 +179,12 @@ class LanguageCompositionTest implements RewriteTest {
               });
               spec.dataTable(LanguageCompositionPerFolder.Row.class, table -> {
                   assertThat(table)
-                    .hasSize(2)
+                    .hasSize(6)
                     .contains(
-                      new LanguageCompositionPerFolder.Row(separatorsToSystem("src/javascript"), "JavaScript", 3, 15),
-                      new LanguageCompositionPerFolder.Row(separatorsToSystem("src/typescript"), "Typescript", 2, 14)
+                      new LanguageCompositionPerFolder.Row(separatorsToSystem("src/javascript"), "JavaScript", 3, 15, 3, 15),
+                      new LanguageCompositionPerFolder.Row(separatorsToSystem("src/typescript"), "Typescript", 2, 14, 2, 14),
+                      new LanguageCompositionPerFolder.Row("src", "JavaScript", 0, 0, 3, 15),
+                      new LanguageCompositionPerFolder.Row("src", "Typescript", 0, 0, 2, 14)
                     );
               });
           },
@@ -269,18 +286,19 @@ class LanguageCompositionTest implements RewriteTest {
                   assertThat(table)
                           .hasSize(3)
                           .containsOnlyOnce(
-                    new LanguageCompositionPerFile.Row(separatorsToSystem("src/main/file.txt"), "Plain text", PlainText.class.getName(), 2, false),
-                    new LanguageCompositionPerFile.Row(separatorsToSystem("src/resources/file.txt"), "Plain text", PlainText.class.getName(), 3, false),
-                    new LanguageCompositionPerFile.Row(separatorsToSystem("file.txt"), "Plain text", PlainText.class.getName(), 4, false)
+                    new LanguageCompositionPerFile.Row(separatorsToSystem("src/main/file.txt"), "Plain text", PlainText.class.getName(), 2, false, false),
+                    new LanguageCompositionPerFile.Row(separatorsToSystem("src/resources/file.txt"), "Plain text", PlainText.class.getName(), 3, false, false),
+                    new LanguageCompositionPerFile.Row(separatorsToSystem("file.txt"), "Plain text", PlainText.class.getName(), 4, false, false)
                   );
               });
               spec.dataTable(LanguageCompositionPerFolder.Row.class, table -> {
                   assertThat(table)
-                          .hasSize(3)
+                          .hasSize(4)
                           .containsOnlyOnce(
-                    new LanguageCompositionPerFolder.Row(separatorsToSystem("src/main"), "Plain text", 1, 2),
-                    new LanguageCompositionPerFolder.Row(separatorsToSystem("src/resources"), "Plain text", 1, 3),
-                    new LanguageCompositionPerFolder.Row(separatorsToSystem(""), "Plain text", 1, 4)
+                    new LanguageCompositionPerFolder.Row(separatorsToSystem("src/main"), "Plain text", 1, 2, 1, 2),
+                    new LanguageCompositionPerFolder.Row(separatorsToSystem("src/resources"), "Plain text", 1, 3, 1, 3),
+                    new LanguageCompositionPerFolder.Row("src", "Plain text", 0, 0, 2, 5),
+                    new LanguageCompositionPerFolder.Row(separatorsToSystem(""), "Plain text", 1, 4, 3, 9)
                   );
               });
           },
@@ -292,13 +310,280 @@ class LanguageCompositionTest implements RewriteTest {
         );
     }
 
+    @Test
+    void linesPerFilePercentiles() {
+        rewriteRun(
+          spec -> {
+              spec.recipe(new LanguageComposition(null, true, null, null, null, null));
+              spec.dataTable(LanguageCompositionPerFile.Row.class, table -> assertThat(table).isEmpty());
+              spec.dataTable(LanguageCompositionPercentiles.Row.class, table ->
+                assertThat(table).containsExactlyInAnyOrder(
+                  new LanguageCompositionPercentiles.Row(separatorsToSystem("src/main"), "Plain text", 1, 2, 2, 2, 2),
+                  new LanguageCompositionPercentiles.Row(separatorsToSystem("src/resources"), "Plain text", 1, 3, 3, 3, 3),
+                  new LanguageCompositionPercentiles.Row("src", "Plain text", 2, 2, 3, 3, 3),
+                  new LanguageCompositionPercentiles.Row("", "Plain text", 3, 3, 4, 4, 4)
+                ));
+          },
+          dir("src",
+            dir("main", textFileWithLineCount(2)),
+            dir("resources", textFileWithLineCount(3))
+          ),
+          textFileWithLineCount(4)
+        );
+    }
+
+    @Test
+    void lineHistogramPercentiles() {
+        LineCountHistogram histogram = new LineCountHistogram();
+        for (int lines = 1; lines <= 1000; lines++) {
+            histogram.add(lines);
+        }
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMax()).isEqualTo(1000);
+        assertThat(histogram.percentile(50)).isBetween(500, 515);
+        assertThat(histogram.percentile(99)).isBetween(990, 1000);
+        assertThat(histogram.percentile(100)).isEqualTo(1000);
+
+        LineCountHistogram other = new LineCountHistogram();
+        other.add(100_000);
+        assertThat(histogram.merge(other).getMax()).isEqualTo(100_000);
+        assertThat(histogram.getCount()).isEqualTo(1001);
+    }
+
+    @Test
+    void estimateLinesOfFilesOverBudget() {
+        rewriteRun(
+          spec -> {
+              spec.recipe(new LanguageComposition(null, null, 30L, null, null, null));
+              spec.dataTable(LanguageCompositionPerFile.Row.class, table ->
+                assertThat(table).singleElement().satisfies(row -> {
+                    assertThat(row.getLinesOfTextEstimated()).isTrue();
+                    assertThat(row.getLinesOfText()).isBetween(1, 5);
+                }));
+          },
+          //language=java
+          java(
+            """
+              package com.whatever;
+
+              class A {
+                  void foo() {
+                  }
+              }
+              """
+          )
+        );
+    }
+
+    @Test
+    void estimateLinesOfFragmentOverBudget() {
+        // The text of a snippet is printed as a single fragment that is ten times the budget
+        SourceFile source = ((PlainText) plainText("big.txt", ""))
+          .withSnippets(List.of(new PlainText.Snippet(Tree.randomId(), Markers.EMPTY, "line\n".repeat(100))))
+          .withFileAttributes(new FileAttributes(null, null, null, true, true, false, 500));
+        RecipeRun run = new LanguageComposition(null, null, 50L, null, null, null)
+          .run(new InMemoryLargeSourceSet(List.of(source)), new InMemoryExecutionContext());
+
+        assertThat(run.getDataTableRows(LanguageCompositionPerFile.class)).singleElement().satisfies(row -> {
+            assertThat(row.getLinesOfTextEstimated()).isTrue();
+            assertThat(row.getLinesOfText()).isEqualTo(100);
+        });
+    }
+
+    @Test
+    void mergeAccumulators() {
+        List<SourceFile> sources = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            sources.add(plainText("src/" + (i % 4) + "/file" + i + ".txt", "line\n".repeat(i + 1)));
+        }
+        LanguageComposition recipe = new LanguageComposition(null, null, null, null, null, null);
+
+        RecipeRun single = recipe.run(new InMemoryLargeSourceSet(sources), new InMemoryExecutionContext());
+        RecipeRun sharded = new ShardedLanguageComposition(recipe)
+          .run(new InMemoryLargeSourceSet(sources), new InMemoryExecutionContext());
+
+        assertThat(sharded.getDataTableRows(LanguageCompositionPerRepository.class))
+          .isNotEmpty()
+          .containsExactlyElementsOf(single.getDataTableRows(LanguageCompositionPerRepository.class));
+        assertThat(sharded.getDataTableRows(LanguageCompositionPerFolder.class))
+          .hasSize(6)
+          .containsExactlyElementsOf(single.getDataTableRows(LanguageCompositionPerFolder.class));
+        assertThat(sharded.getDataTableRows(LanguageCompositionPercentiles.class))
+          .containsExactlyElementsOf(single.getDataTableRows(LanguageCompositionPercentiles.class));
+        // Files are scanned concurrently, so their rows are inserted in no particular order
+        assertThat(sharded.getDataTableRows(LanguageCompositionPerFile.class))
+          .hasSize(sources.size())
+          .containsExactlyInAnyOrderElementsOf(single.getDataTableRows(LanguageCompositionPerFile.class));
+    }
+
+    /**
+     * Scans alternate source files into two accumulators, each filled from several threads at once,
+     * and reports their merged counts.
+     */
+    private static class ShardedLanguageComposition extends ScanningRecipe<List<SourceFile>> {
+        private final LanguageComposition delegate;
+
+        ShardedLanguageComposition(LanguageComposition delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Sharded language composition";
+        }
+
+        @Override
+        public String getDescription() {
+            return "Language composition of two shards, merged.";
+        }
+
+        @Override
+        public List<SourceFile> getInitialValue(ExecutionContext ctx) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public TreeVisitor<?, ExecutionContext> getScanner(List<SourceFile> sources) {
+            return new TreeVisitor<>() {
+                @Override
+                public Tree visit(@Nullable Tree tree, ExecutionContext ctx) {
+                    sources.add((SourceFile) tree);
+                    return tree;
+                }
+            };
+        }
+
+        @Override
+        public Collection<? extends SourceFile> generate(List<SourceFile> sources, ExecutionContext ctx) {
+            List<LanguageComposition.Accumulator> shards = List.of(
+              delegate.getInitialValue(ctx), delegate.getInitialValue(ctx));
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> scans = new ArrayList<>();
+                for (int i = 0; i < sources.size(); i++) {
+                    SourceFile source = sources.get(i);
+                    LanguageComposition.Accumulator shard = shards.get(i % 2);
+                    scans.add(executor.submit(() -> delegate.getScanner(shard).visit(source, ctx)));
+                }
+                for (Future<?> scan : scans) {
+                    scan.get();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                executor.shutdown();
+            }
+            return delegate.generate(shards.get(0).merge(shards.get(1)), ctx);
+        }
+    }
+
+    @Test
+    void mergePartialResults(@TempDir Path partials) {
+        Path shard = partials.resolve("shard-1");
+        new LanguageComposition(null, null, null, null, null, shard.toString())
+          .run(new InMemoryLargeSourceSet(List.of(plainText("src/a.txt", "one\ntwo\n"))), new InMemoryExecutionContext());
+
+        RecipeRun run = new LanguageComposition(null, null, null, null, partials.toString(), null)
+          .run(new InMemoryLargeSourceSet(List.of(plainText("src/b.txt", "three\n"))), new InMemoryExecutionContext());
+        assertThat(run.getDataTableRows(LanguageCompositionPerRepository.class))
+          .containsExactly(new LanguageCompositionPerRepository.Row("Plain text", 2, 3));
+        assertThat(run.getDataTableRows(LanguageCompositionPerFolder.class))
+          .contains(new LanguageCompositionPerFolder.Row("src", "Plain text", 2, 3, 2, 3));
+    }
+
+    @Test
+    void mergeAndWriteSameDirectory(@TempDir Path partials) {
+        new LanguageComposition(null, null, null, null, partials.toString(), partials.resolve("shard-1").toString())
+          .run(new InMemoryLargeSourceSet(List.of(plainText("src/a.txt", "one\ntwo\n"))), new InMemoryExecutionContext());
+
+        // Re-running a shard neither merges its own earlier partial nor another shard's counts through it
+        LanguageComposition shard2 = new LanguageComposition(null, null, null, null, partials.toString(),
+          partials.resolve("shard-2").toString());
+        for (int run = 0; run < 2; run++) {
+            assertThat(shard2.run(new InMemoryLargeSourceSet(List.of(plainText("src/b.txt", "three\n"))), new InMemoryExecutionContext())
+              .getDataTableRows(LanguageCompositionPerRepository.class))
+              .containsExactly(new LanguageCompositionPerRepository.Row("Plain text", 2, 3));
+        }
+        assertThat(new LanguageComposition(null, null, null, null, partials.toString(), null)
+          .run(new InMemoryLargeSourceSet(List.of()), new InMemoryExecutionContext())
+          .getDataTableRows(LanguageCompositionPerRepository.class))
+          .containsExactly(new LanguageCompositionPerRepository.Row("Plain text", 2, 3));
+    }
+
+    private static SourceFile plainText(String sourcePath, String text) {
+        return PlainTextParser.builder().build()
+          .parse(text)
+          .findFirst().orElseThrow()
+          .withSourcePath(Paths.get(sourcePath));
+    }
+
+    @Test
+    void lineCountRecordedAtParseTime() {
+        rewriteRun(
+          spec -> {
+              spec.allSources(s -> s.markers(new LineCount(Tree.randomId(), 42)));
+              spec.dataTable(LanguageCompositionPerFile.Row.class, table ->
+                assertThat(table).containsExactly(
+                  new LanguageCompositionPerFile.Row("file.txt", "Plain text", PlainText.class.getName(), 42, false, false)
+                ));
+          },
+          textFileWithLineCount(2)
+        );
+    }
+
+    @Test
+    void countLinesOfParsedText() {
+        assertThat(LineCount.count("")).isZero();
+        assertThat(LineCount.count("hello")).isOne();
+        assertThat(LineCount.count("hello\nworld\n")).isEqualTo(2);
+        assertThat(LineCount.count("hello\n\nworld")).isEqualTo(3);
+    }
+
+    @Test
+    void replayFromCache(@TempDir Path cacheDirectory) {
+        Checksum checksum = new Checksum("SHA-256", new byte[]{1, 2, 3});
+        LanguageComposition recipe = new LanguageComposition(cacheDirectory.toString(), null, null, null, null, null);
+        SourceFile original = PlainTextParser.builder().build()
+          .parse("hello\nworld\n")
+          .findFirst().orElseThrow()
+          .withChecksum(checksum);
+        assertThat(recipe.run(new InMemoryLargeSourceSet(List.of(original)), new InMemoryExecutionContext())
+          .getDataTableRows(LanguageCompositionPerFile.class))
+          .singleElement()
+          .extracting(LanguageCompositionPerFile.Row::getLinesOfText)
+          .isEqualTo(2);
+
+        // An unchanged checksum means the file is not counted again
+        SourceFile unchanged = ((PlainText) original).withText("hello\n");
+        assertThat(recipe.run(new InMemoryLargeSourceSet(List.of(unchanged)), new InMemoryExecutionContext())
+          .getDataTableRows(LanguageCompositionPerFile.class))
+          .singleElement()
+          .extracting(LanguageCompositionPerFile.Row::getLinesOfText)
+          .isEqualTo(2);
+    }
+
+    @Test
+    void cacheSourceFilesMarkedWithChecksum(@TempDir Path cacheDirectory) {
+        LanguageComposition recipe = new LanguageComposition(cacheDirectory.toString(), null, null, null, null, null);
+        String text = "class A {\n}\n";
+        SourceFile unmarked = JavaParser.fromJavaVersion().build().parse(text).findFirst().orElseThrow();
+
+        // Parsing text records no checksum to key an entry by
+        recipe.run(new InMemoryLargeSourceSet(List.of(unmarked)), new InMemoryExecutionContext());
+        assertThat(cacheDirectory).isEmptyDirectory();
+
+        recipe.run(new InMemoryLargeSourceSet(List.of(SourceChecksum.mark(unmarked, text))),
+          new InMemoryExecutionContext());
+        assertThat(cacheDirectory).isNotEmptyDirectory();
+    }
+
     @Test
     void successfulParseRemainsClassifiedWhenLineCountingFails() {
         // A Py$CompilationUnit is a successful Python parse. In production the Python LST is printed over RPC to
         // count lines; when that printing fails (e.g. the RPC worker is out of memory) the file must still be
         // reported as Python rather than rolled up under "Error". See customer-requests#2326.
         SourceFile pythonThatFailsToPrint = new ThrowingPy();
-        RecipeRun run = new LanguageComposition().run(
+        RecipeRun run = new LanguageComposition(null, null, null, null, null, null).run(
           new InMemoryLargeSourceSet(List.of(pythonThatFailsToPrint)),
           new InMemoryExecutionContext());
 
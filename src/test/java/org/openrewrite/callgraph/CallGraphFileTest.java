@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.callgraph;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openrewrite.table.CallGraph;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CallGraphFileTest {
+
+    @Test
+    void roundTrip(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("callgraph.bin");
+        new CallGraphFileWriter()
+          .add(call("a.A", "run", "b.B", "help", "java.lang.String"))
+          .add(call("a.A", "run", "c.C", "<constructor>", ""))
+          // Duplicate edges collapse to a single neighbor
+          .add(call("a.A", "run", "b.B", "help", "java.lang.String"))
+          .add(reference("a.A", "run", "d.D"))
+          .write(file);
+
+        CallGraphFile graph = CallGraphFile.open(file);
+        assertThat(graph.getNodeCount()).isEqualTo(4);
+
+        int run = graph.findNode("a.A", "run", "", CallGraph.ResourceType.METHOD);
+        int help = graph.findNode("b.B", "help", "java.lang.String", CallGraph.ResourceType.METHOD);
+        int constructor = graph.findNode("c.C", "<constructor>", "", CallGraph.ResourceType.CONSTRUCTOR);
+        int referenced = graph.findNode("d.D", "", "", CallGraph.ResourceType.CLASS);
+        assertThat(graph.findNode("a.A", "missing", "", CallGraph.ResourceType.METHOD)).isEqualTo(-1);
+
+        assertThat(graph.neighbors(run, CallGraph.ResourceAction.CALL)).containsExactly(help, constructor);
+        assertThat(graph.neighbors(run, CallGraph.ResourceAction.REFERENCE)).containsExactly(referenced);
+        assertThat(graph.neighbors(help, CallGraph.ResourceAction.CALL)).isEmpty();
+
+        CallGraphFile.Node node = graph.getNode(help);
+        assertThat(node.getClassName()).isEqualTo("b.B");
+        assertThat(node.getName()).isEqualTo("help");
+        assertThat(node.getArguments()).isEqualTo("java.lang.String");
+        assertThat(node.getType()).isEqualTo(CallGraph.ResourceType.METHOD);
+    }
+
+    private static CallGraph.Row call(String fromClass, String fromName, String toClass, String toName, String toArguments) {
+        return new CallGraph.Row("main", fromClass, fromName, "", CallGraph.ResourceType.METHOD,
+          CallGraph.ResourceAction.CALL, toClass, toName, toArguments,
+          "<constructor>".equals(toName) ? CallGraph.ResourceType.CONSTRUCTOR : CallGraph.ResourceType.METHOD, "void");
+    }
+
+    private static CallGraph.Row reference(String fromClass, String fromName, String toClass) {
+        return new CallGraph.Row("main", fromClass, fromName, "", CallGraph.ResourceType.METHOD,
+          CallGraph.ResourceAction.REFERENCE, toClass, "", "", CallGraph.ResourceType.CLASS, "");
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.composition;
+
+import org.jspecify.annotations.Nullable;
+import org.openrewrite.SourceFile;
+
+/**
+ * Registered through {@link java.util.ServiceLoader} by the test resources, so that it is consulted before
+ * the built-in classification.
+ */
+public class CustomPythonClassifier implements LanguageClassifier {
+    @Override
+    public @Nullable String language(Class<? extends SourceFile> sourceFileType) {
+        return sourceFileType == LanguageClassifiersTest.CustomPython.class ? "Custom Python" : null;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.composition;
+
+import org.junit.jupiter.api.Test;
+import org.openrewrite.SourceFile;
+import org.openrewrite.groovy.tree.G;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.javascript.tree.JS;
+import org.openrewrite.kotlin.tree.K;
+import org.openrewrite.python.tree.Py;
+import org.openrewrite.text.PlainText;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LanguageClassifiersTest {
+
+    @Test
+    void languagesExtendingJavaAreMatchedBeforeJava() {
+        assertThat(LanguageClassifiers.language(K.CompilationUnit.class)).isEqualTo("Kotlin");
+        assertThat(LanguageClassifiers.language(G.CompilationUnit.class)).isEqualTo("Groovy");
+        assertThat(LanguageClassifiers.language(JS.CompilationUnit.class)).isEqualTo("JavaScript");
+        assertThat(LanguageClassifiers.language(J.CompilationUnit.class)).isEqualTo("Java");
+        assertThat(LanguageClassifiers.language(PlainText.class)).isEqualTo("Plain text");
+    }
+
+    @Test
+    void unknownSourceFileType() {
+        assertThat(LanguageClassifiers.language(UnknownSourceFile.class)).isEqualTo("Unknown");
+    }
+
+    @Test
+    void serviceLoaderClassifierTakesPrecedence() {
+        // CustomPythonClassifier is registered in META-INF/services by the test resources
+        assertThat(new BuiltInLanguageClassifier().language(CustomPython.class)).isEqualTo("Python");
+        assertThat(LanguageClassifiers.language(CustomPython.class)).isEqualTo("Custom Python");
+    }
+
+    abstract static class CustomPython implements Py, SourceFile {
+    }
+
+    private abstract static class UnknownSourceFile implements SourceFile {
+    }
+}